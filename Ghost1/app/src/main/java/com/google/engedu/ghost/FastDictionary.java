@@ -15,38 +15,100 @@
 
 package com.google.engedu.ghost;
 
+import com.google.engedu.metrics.DictionaryMetrics;
+import com.google.engedu.metrics.LatencyHistogram;
+import com.google.engedu.metrics.MetricsRegistry;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 
+public class FastDictionary implements GhostDictionary, DictionaryMetrics {
 
-public class FastDictionary implements GhostDictionary {
+    // Estimated heap cost of one TrieNode: the node, its HashMap and table
+    // slot, the map entry and the one-character String key.
+    private static final int NODE_BYTES = 16 + 48 + 4 + 32 + MetricsRegistry.STRING_OVERHEAD + 2;
 
     private TrieNode root;
+    private int wordCount;
+    private long buildTimeNanos;
+    private LatencyHistogram isWordLatency = new LatencyHistogram();
+    private LatencyHistogram anyWordLatency = new LatencyHistogram();
+    private LatencyHistogram goodWordLatency = new LatencyHistogram();
 
     public FastDictionary(InputStream wordListStream) throws IOException {
+        long start = System.nanoTime();
         BufferedReader in = new BufferedReader(new InputStreamReader(wordListStream));
         root = new TrieNode();
         String line = null;
         while((line = in.readLine()) != null) {
             String word = line.trim();
-            if (word.length() >= MIN_WORD_LENGTH)
+            if (word.length() >= MIN_WORD_LENGTH) {
                 root.add(line.trim());
+                wordCount++;
+            }
         }
+        buildTimeNanos = System.nanoTime() - start;
     }
     @Override
     public boolean isWord(String word) {
-        return root.isWord(word);
+        long start = System.nanoTime();
+        boolean result = root.isWord(word);
+        isWordLatency.record(System.nanoTime() - start);
+        return result;
     }
 
     @Override
     public String getAnyWordStartingWith(String prefix) {
-        return root.getAnyWordStartingWith(prefix);
+        long start = System.nanoTime();
+        String result = root.getAnyWordStartingWith(prefix);
+        anyWordLatency.record(System.nanoTime() - start);
+        return result;
     }
 
     @Override
     public String getGoodWordStartingWith(String prefix) {
-        return root.getGoodWordStartingWith(prefix);
+        long start = System.nanoTime();
+        String result = root.getGoodWordStartingWith(prefix);
+        goodWordLatency.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return "FastDictionary";
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        return (long) NODE_BYTES * getNodeCount();
+    }
+
+    @Override
+    public int getEntryCount() {
+        return wordCount;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return root.countNodes();
+    }
+
+    @Override
+    public long getBuildTimeNanos() {
+        return buildTimeNanos;
+    }
+
+    @Override
+    public Map<String, LatencyHistogram> getLatencies() {
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        latencies.put("isWord", isWordLatency);
+        latencies.put("getAnyWordStartingWith", anyWordLatency);
+        latencies.put("getGoodWordStartingWith", goodWordLatency);
+        return latencies;
     }
 }
@@ -19,7 +19,9 @@ import android.content.res.AssetManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.SystemClock;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
 import android.view.KeyEvent;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -28,6 +30,9 @@ import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.google.engedu.metrics.DictionaryMetrics;
+import com.google.engedu.metrics.MetricsRegistry;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -65,6 +70,7 @@ public class GhostActivity extends AppCompatActivity {
         try {
             inputStream = assetManager.open("words.txt");
             dictionary = new SimpleDictionary(inputStream);
+            MetricsRegistry.register((DictionaryMetrics) dictionary);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -83,6 +89,13 @@ public class GhostActivity extends AppCompatActivity {
         }
     };
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // The registry is static; let this activity's dictionary go with it.
+        if (dictionary != null) MetricsRegistry.unregister((DictionaryMetrics) dictionary);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
@@ -101,6 +114,16 @@ public class GhostActivity extends AppCompatActivity {
         if (id == R.id.action_settings) {
             return true;
         }
+        if (id == R.id.action_metrics) {
+            String report = MetricsRegistry.report();
+            Log.i("Ghost", report);
+            new AlertDialog.Builder(this)
+                    .setTitle(R.string.action_metrics)
+                    .setMessage(report)
+                    .setPositiveButton(android.R.string.ok, null)
+                    .show();
+            return true;
+        }
 
         return super.onOptionsItemSelected(item);
     }
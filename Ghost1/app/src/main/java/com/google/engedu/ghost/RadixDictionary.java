@@ -0,0 +1,333 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.ghost;
+
+import com.google.engedu.metrics.DictionaryMetrics;
+import com.google.engedu.metrics.LatencyHistogram;
+import com.google.engedu.metrics.MetricsRegistry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A path-compressed (Patricia) trie.
+ *
+ * Every word is copied once into a single char arena. Nodes are plain int
+ * arrays and an edge label is never stored on its own: a node remembers the
+ * arena offset of one word that passes through it and the depth at which it
+ * ends, so the label of the edge leading into it is
+ * arena[word + parentDepth, word + depth).
+ */
+public class RadixDictionary implements GhostDictionary, DictionaryMetrics {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private char[] arena;
+    private int[] nodeWord;
+    private int[] nodeDepth;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private BitSet isWord = new BitSet();
+    // Set when the player about to move from this node can force a win.
+    private BitSet winning = new BitSet();
+    private int nodeCount;
+    private int wordCount;
+    private Random random = new Random();
+    private long buildTimeNanos;
+    private LatencyHistogram isWordLatency = new LatencyHistogram();
+    private LatencyHistogram anyWordLatency = new LatencyHistogram();
+    private LatencyHistogram goodWordLatency = new LatencyHistogram();
+
+    public RadixDictionary(InputStream wordListStream) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader in = new BufferedReader(new InputStreamReader(wordListStream));
+        ArrayList<String> words = new ArrayList<>();
+        String line = null;
+        while((line = in.readLine()) != null) {
+            String word = line.trim();
+            if (word.length() >= MIN_WORD_LENGTH)
+                words.add(word);
+        }
+        Collections.sort(words);
+        int unique = 0;
+        for (int i = 0; i < words.size(); i++) {
+            if (unique == 0 || !words.get(i).equals(words.get(unique - 1)))
+                words.set(unique++, words.get(i));
+        }
+        words.subList(unique, words.size()).clear();
+        wordCount = unique;
+
+        int[] wordStart = new int[words.size()];
+        int arenaSize = 0;
+        for (int i = 0; i < words.size(); i++) {
+            wordStart[i] = arenaSize;
+            arenaSize += words.get(i).length();
+        }
+        arena = new char[arenaSize];
+        for (int i = 0; i < words.size(); i++) {
+            words.get(i).getChars(0, words.get(i).length(), arena, wordStart[i]);
+        }
+
+        // A radix trie over n keys never has more than 2n nodes.
+        int capacity = 2 * words.size() + 1;
+        nodeWord = new int[capacity];
+        nodeDepth = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        newNode(0, 0);
+        build(ROOT, words, wordStart, 0, words.size(), 0);
+        // Real tries use far fewer nodes than the bound; drop the slack.
+        nodeWord = Arrays.copyOf(nodeWord, nodeCount);
+        nodeDepth = Arrays.copyOf(nodeDepth, nodeCount);
+        firstChild = Arrays.copyOf(firstChild, nodeCount);
+        nextSibling = Arrays.copyOf(nextSibling, nodeCount);
+        computeWinning(ROOT);
+        buildTimeNanos = System.nanoTime() - start;
+    }
+
+    @Override
+    public boolean isWord(String word) {
+        long start = System.nanoTime();
+        boolean result = contains(word);
+        isWordLatency.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public String getAnyWordStartingWith(String prefix) {
+        long start = System.nanoTime();
+        String result = anyWordStartingWith(prefix);
+        anyWordLatency.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public String getGoodWordStartingWith(String prefix) {
+        long start = System.nanoTime();
+        String result = goodWordStartingWith(prefix);
+        goodWordLatency.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return "RadixDictionary";
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        long bytes = MetricsRegistry.ARRAY_OVERHEAD + 2L * arena.length;
+        bytes += 4 * (MetricsRegistry.ARRAY_OVERHEAD + 4L * nodeWord.length);
+        bytes += 2 * (MetricsRegistry.ARRAY_OVERHEAD + nodeWord.length / 8);
+        return bytes;
+    }
+
+    @Override
+    public int getEntryCount() {
+        return wordCount;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public long getBuildTimeNanos() {
+        return buildTimeNanos;
+    }
+
+    @Override
+    public Map<String, LatencyHistogram> getLatencies() {
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        latencies.put("isWord", isWordLatency);
+        latencies.put("getAnyWordStartingWith", anyWordLatency);
+        latencies.put("getGoodWordStartingWith", goodWordLatency);
+        return latencies;
+    }
+
+    private boolean contains(String word) {
+        int node = ROOT;
+        int depth = 0;
+        while (depth < word.length()) {
+            node = child(node, word.charAt(depth));
+            if (node == NONE) return false;
+            int end = nodeDepth[node];
+            if (end > word.length() || !matches(node, depth, word)) return false;
+            depth = end;
+        }
+        return isWord.get(node);
+    }
+
+    private String anyWordStartingWith(String prefix) {
+        int node = ROOT;
+        if (prefix.length() == 0) {
+            node = randomChild(ROOT);
+        } else {
+            node = find(prefix);
+        }
+        if (node == NONE) return null;
+        return anyWordBelow(node);
+    }
+
+    /**
+     * Returns a word that lets the player extending {@code prefix} force a win,
+     * or any valid word if every continuation loses.
+     */
+    private String goodWordStartingWith(String prefix) {
+        int node = find(prefix);
+        if (node == NONE) return null;
+        if (nodeDepth[node] != prefix.length() || isWord.get(node)) {
+            // Either we are in the middle of an edge and there is only one way
+            // to go, or the game is already over.
+            return anyWordBelow(node);
+        }
+        ArrayList<Integer> good = new ArrayList<>();
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            if (winsThrough(node, c)) good.add(c);
+        }
+        if (good.isEmpty()) return anyWordBelow(node);
+        return anyWordBelow(good.get(random.nextInt(good.size())));
+    }
+
+    /**
+     * Returns the node whose edge contains the end of {@code prefix}, or NONE.
+     */
+    private int find(String prefix) {
+        int node = ROOT;
+        int depth = 0;
+        while (depth < prefix.length()) {
+            node = child(node, prefix.charAt(depth));
+            if (node == NONE) return NONE;
+            int end = Math.min(nodeDepth[node], prefix.length());
+            for (int i = depth + 1; i < end; i++) {
+                if (arena[nodeWord[node] + i] != prefix.charAt(i)) return NONE;
+            }
+            depth = nodeDepth[node];
+        }
+        return node;
+    }
+
+    private boolean matches(int node, int from, String word) {
+        for (int i = from; i < nodeDepth[node]; i++) {
+            if (arena[nodeWord[node] + i] != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private int child(int node, char c) {
+        int depth = nodeDepth[node];
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            if (arena[nodeWord[child] + depth] == c) return child;
+        }
+        return NONE;
+    }
+
+    private int randomChild(int node) {
+        int count = 0;
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) count++;
+        if (count == 0) return NONE;
+        int pick = random.nextInt(count);
+        int c = firstChild[node];
+        while (pick-- > 0) c = nextSibling[c];
+        return c;
+    }
+
+    private String anyWordBelow(int node) {
+        while (!isWord.get(node)) node = firstChild[node];
+        return new String(arena, nodeWord[node], nodeDepth[node]);
+    }
+
+    /**
+     * The player to move at {@code node} wins by entering {@code child} if the
+     * position at the bottom of the edge is lost for whoever moves there.
+     * Positions inside an edge offer no choice, so only the edge length parity
+     * decides who that is.
+     */
+    private boolean winsThrough(int node, int child) {
+        int length = nodeDepth[child] - nodeDepth[node];
+        boolean opponentMovesNext = length % 2 == 1;
+        return opponentMovesNext != winning.get(child);
+    }
+
+    private void computeWinning(int node) {
+        if (isWord.get(node)) {
+            // The previous player completed a word and lost.
+            winning.set(node);
+            return;
+        }
+        boolean win = false;
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            computeWinning(c);
+            if (winsThrough(node, c)) win = true;
+        }
+        if (win) winning.set(node);
+    }
+
+    /**
+     * Builds the children of {@code parent} from the sorted words in [lo, hi),
+     * all of which share their first {@code depth} characters.
+     */
+    private void build(int parent, ArrayList<String> words, int[] wordStart,
+                       int lo, int hi, int depth) {
+        int i = lo;
+        if (i < hi && words.get(i).length() == depth) {
+            isWord.set(parent);
+            i++;
+        }
+        int last = NONE;
+        while (i < hi) {
+            String first = words.get(i);
+            char c = first.charAt(depth);
+            int j = i + 1;
+            while (j < hi && words.get(j).charAt(depth) == c) j++;
+            // Sorted input: the group's common prefix is that of its ends.
+            int end = commonPrefix(first, words.get(j - 1));
+            int node = newNode(wordStart[i], end);
+            if (last == NONE) firstChild[parent] = node;
+            else nextSibling[last] = node;
+            last = node;
+            build(node, words, wordStart, i, j, end);
+            i = j;
+        }
+    }
+
+    private int newNode(int word, int depth) {
+        int node = nodeCount++;
+        nodeWord[node] = word;
+        nodeDepth[node] = depth;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        return node;
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+}
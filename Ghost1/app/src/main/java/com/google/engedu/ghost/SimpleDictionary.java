@@ -15,16 +15,27 @@
 
 package com.google.engedu.ghost;
 
+import com.google.engedu.metrics.DictionaryMetrics;
+import com.google.engedu.metrics.LatencyHistogram;
+import com.google.engedu.metrics.MetricsRegistry;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-public class SimpleDictionary implements GhostDictionary {
+public class SimpleDictionary implements GhostDictionary, DictionaryMetrics {
     private ArrayList<String> words;
+    private long buildTimeNanos;
+    private LatencyHistogram isWordLatency = new LatencyHistogram();
+    private LatencyHistogram anyWordLatency = new LatencyHistogram();
+    private LatencyHistogram goodWordLatency = new LatencyHistogram();
 
     public SimpleDictionary(InputStream wordListStream) throws IOException {
+        long start = System.nanoTime();
         BufferedReader in = new BufferedReader(new InputStreamReader(wordListStream));
         words = new ArrayList<>();
         String line = null;
@@ -33,15 +44,26 @@ public class SimpleDictionary implements GhostDictionary {
             if (word.length() >= MIN_WORD_LENGTH)
               words.add(line.trim());
         }
+        buildTimeNanos = System.nanoTime() - start;
     }
 
     @Override
     public boolean isWord(String word) {
-        return words.contains(word);
+        long start = System.nanoTime();
+        boolean result = words.contains(word);
+        isWordLatency.record(System.nanoTime() - start);
+        return result;
     }
 
     @Override
     public String getAnyWordStartingWith(String prefix) {
+        long start = System.nanoTime();
+        String result = findWordStartingWith(prefix);
+        anyWordLatency.record(System.nanoTime() - start);
+        return result;
+    }
+
+    private String findWordStartingWith(String prefix) {
         if(prefix.length() == 0) return words.get((int) (Math.random() * words.size()));
 
         int start = 0, end = words.size(), mid;
@@ -59,7 +81,45 @@ public class SimpleDictionary implements GhostDictionary {
 
     @Override
     public String getGoodWordStartingWith(String prefix) {
+        long start = System.nanoTime();
         String selected = null;
+        goodWordLatency.record(System.nanoTime() - start);
         return selected;
     }
+
+    @Override
+    public String getName() {
+        return "SimpleDictionary";
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        long bytes = MetricsRegistry.ARRAY_OVERHEAD + (long) MetricsRegistry.REFERENCE * words.size();
+        for (String word : words) bytes += MetricsRegistry.stringBytes(word);
+        return bytes;
+    }
+
+    @Override
+    public int getEntryCount() {
+        return words.size();
+    }
+
+    @Override
+    public int getNodeCount() {
+        return words.size();
+    }
+
+    @Override
+    public long getBuildTimeNanos() {
+        return buildTimeNanos;
+    }
+
+    @Override
+    public Map<String, LatencyHistogram> getLatencies() {
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        latencies.put("isWord", isWordLatency);
+        latencies.put("getAnyWordStartingWith", anyWordLatency);
+        latencies.put("getGoodWordStartingWith", goodWordLatency);
+        return latencies;
+    }
 }
@@ -41,4 +41,10 @@ public class TrieNode {
     public String getGoodWordStartingWith(String s) {
         return null;
     }
+
+    public int countNodes() {
+        int count = 1;
+        for (TrieNode child : children.values()) count += child.countNodes();
+        return count;
+    }
 }
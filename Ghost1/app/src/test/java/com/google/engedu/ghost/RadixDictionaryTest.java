@@ -0,0 +1,147 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.ghost;
+
+import com.google.engedu.metrics.MetricsRegistry;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class RadixDictionaryTest {
+
+    // Sorted, as words.txt is. "abcd" ends inside the edges of "abcdefg" and
+    // "abcdxyz", "tea" is too short to count and "team"/"teams" stack.
+    private static final List<String> WORDS = Arrays.asList(
+            "abcd", "abcdefg", "abcdxyz", "tea", "tealeaf", "team", "teams", "tear", "zebra");
+
+    private static InputStream stream(List<String> words) {
+        StringBuilder text = new StringBuilder();
+        for (String word : words) text.append(word).append('\n');
+        return new ByteArrayInputStream(text.toString().getBytes());
+    }
+
+    /**
+     * Every prefix of every word, plus strings that leave the trie at the
+     * start of an edge, inside one and past its end.
+     */
+    private static List<String> queries() {
+        TreeSet<String> queries = new TreeSet<>();
+        for (String word : WORDS) {
+            for (int i = 0; i <= word.length(); i++) queries.add(word.substring(0, i));
+        }
+        queries.addAll(Arrays.asList("b", "abce", "abcdx", "abcdefgh", "teaz", "zebras", "x"));
+        return new ArrayList<>(queries);
+    }
+
+    @Test
+    public void testIsWordMatchesSimpleDictionary() throws IOException {
+        SimpleDictionary simple = new SimpleDictionary(stream(WORDS));
+        RadixDictionary radix = new RadixDictionary(stream(WORDS));
+        for (String query : queries()) {
+            assertEquals(query, simple.isWord(query), radix.isWord(query));
+        }
+        assertEquals(8, radix.getEntryCount());
+    }
+
+    @Test
+    public void testAnyWordMatchesSimpleDictionary() throws IOException {
+        SimpleDictionary simple = new SimpleDictionary(stream(WORDS));
+        RadixDictionary radix = new RadixDictionary(stream(WORDS));
+        for (String query : queries()) {
+            String expected = simple.getAnyWordStartingWith(query);
+            String actual = radix.getAnyWordStartingWith(query);
+            assertEquals(query, expected == null, actual == null);
+            if (actual != null) {
+                assertTrue(query + " -> " + actual, actual.startsWith(query));
+                assertTrue(actual, simple.isWord(actual));
+            }
+        }
+        // Mid-edge prefixes complete along the edge; diverging ones fail.
+        assertTrue(radix.getAnyWordStartingWith("abc").startsWith("abcd"));
+        assertNull(radix.getAnyWordStartingWith("abce"));
+        assertNotNull(radix.getAnyWordStartingWith(""));
+    }
+
+    @Test
+    public void testRetainedBytesCountUsedNodesOnly() throws IOException {
+        RadixDictionary radix = new RadixDictionary(stream(WORDS));
+        int arena = 0;
+        for (String word : WORDS) {
+            if (word.length() >= GhostDictionary.MIN_WORD_LENGTH) arena += word.length();
+        }
+        int nodes = radix.getNodeCount();
+        // Node arrays sized to the build's 2n + 1 bound would exceed this.
+        long expected = MetricsRegistry.ARRAY_OVERHEAD + 2L * arena
+                + 4 * (MetricsRegistry.ARRAY_OVERHEAD + 4L * nodes)
+                + 2 * (MetricsRegistry.ARRAY_OVERHEAD + nodes / 8);
+        assertEquals(expected, radix.getRetainedBytes());
+        assertTrue(nodes < 2 * radix.getEntryCount() + 1);
+    }
+
+    @Test
+    public void testDuplicateLinesCountOnce() throws IOException {
+        RadixDictionary radix = new RadixDictionary(stream(Arrays.asList("team", "team", "teams")));
+        assertEquals(2, radix.getEntryCount());
+        assertTrue(radix.isWord("team"));
+    }
+
+    /**
+     * Brute force: the player about to extend {@code prefix} wins if the
+     * last move completed a word, or if some letter leaves the opponent in a
+     * losing position.
+     */
+    private static boolean wins(String prefix, TreeSet<String> words) {
+        if (words.contains(prefix)) return true;
+        for (char c = 'a'; c <= 'z'; c++) {
+            String next = prefix + c;
+            String ceiling = words.ceiling(next);
+            if (ceiling != null && ceiling.startsWith(next) && !wins(next, words)) return true;
+        }
+        return false;
+    }
+
+    @Test
+    public void testGoodWordPicksAWinningLetter() throws IOException {
+        RadixDictionary radix = new RadixDictionary(stream(WORDS));
+        TreeSet<String> words = new TreeSet<>();
+        for (String word : WORDS) {
+            if (word.length() >= GhostDictionary.MIN_WORD_LENGTH) words.add(word);
+        }
+        for (String query : queries()) {
+            String good = radix.getGoodWordStartingWith(query);
+            String ceiling = words.ceiling(query);
+            if (ceiling == null || !ceiling.startsWith(query)) {
+                assertNull(query, good);
+                continue;
+            }
+            assertNotNull(query, good);
+            assertTrue(query + " -> " + good, good.startsWith(query) && words.contains(good));
+            if (!words.contains(query) && wins(query, words)) {
+                String move = good.substring(0, query.length() + 1);
+                assertFalse(query + " -> " + good, wins(move, words));
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.puzzle8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Exact distance to the goal for every solvable 3x3 board.
+ *
+ * The 181,440 solvable boards are numbered by a perfect hash: the blank's
+ * cell times 8!/2, plus the rank of the other eight tiles' permutation
+ * among those of the right parity. That rank uses the first six Lehmer
+ * code digits only, since the seventh is fixed by the parity and the last
+ * is always zero. A backward BFS from the goal fills one byte per board,
+ * after which solving is a greedy descent: some neighbour is always one
+ * step closer.
+ */
+public class DistanceTable {
+
+    public static final int SIZE = 3;
+    // 8! / 2 permutations of the tiles for each blank cell.
+    private static final int RANKS = 20160;
+    public static final int STATES = 9 * RANKS;
+    private static final int MAGIC = 0x50384454; // "P8DT"
+
+    // (7 - i)! / 2 for the Lehmer digits i = 0..5.
+    private static final int[] WEIGHTS = { 2520, 360, 60, 12, 3, 1 };
+
+    private final PackedBoard packing = new PackedBoard(SIZE);
+    private final byte[] distances;
+
+    private DistanceTable(byte[] distances) {
+        this.distances = distances;
+    }
+
+    /**
+     * Runs the backward BFS over the whole state space.
+     */
+    public static DistanceTable build() {
+        byte[] distances = new byte[STATES];
+        Arrays.fill(distances, (byte) -1);
+        DistanceTable table = new DistanceTable(distances);
+        PackedBoard packing = table.packing;
+        long[] queue = new long[STATES];
+        int head = 0, tail = 0;
+        queue[tail++] = packing.getGoal();
+        distances[table.index(packing.getGoal())] = 0;
+        while (head < tail) {
+            long state = queue[head++];
+            byte next = (byte) (distances[table.index(state)] + 1);
+            int blank = packing.blank(state);
+            for (int from : packing.movesFrom(blank)) {
+                long neighbour = PackedBoard.slide(state, blank, from);
+                int i = table.index(neighbour);
+                if (distances[i] < 0) {
+                    distances[i] = next;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        return table;
+    }
+
+    public static DistanceTable read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC || in.readInt() != STATES)
+            throw new IOException("Not an 8-puzzle distance table");
+        byte[] distances = new byte[STATES];
+        in.readFully(distances);
+        return new DistanceTable(distances);
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(STATES);
+        out.write(distances);
+        out.flush();
+    }
+
+    /**
+     * Perfect hash of a solvable packed 3x3 board into [0, STATES).
+     */
+    public int index(long state) {
+        int blank = 0, rank = 0, digit = 0;
+        for (int cell = 0; cell < 9; cell++) {
+            int value = PackedBoard.get(state, cell);
+            if (value == 0) {
+                blank = cell;
+                continue;
+            }
+            if (digit == WEIGHTS.length) continue;
+            // Lehmer digit: later tiles smaller than this one; the blank is 0.
+            int smaller = 0;
+            for (int later = cell + 1; later < 9; later++) {
+                int other = PackedBoard.get(state, later);
+                if (other != 0 && other < value) smaller++;
+            }
+            rank += smaller * WEIGHTS[digit++];
+        }
+        return blank * RANKS + rank;
+    }
+
+    /**
+     * Returns the number of moves to the goal, or -1 if the board cannot
+     * be solved.
+     */
+    public int getDistance(long state) {
+        if (!packing.isSolvable(state)) return -1;
+        return distances[index(state)];
+    }
+
+    /**
+     * Returns the boards of an optimal solution from {@code start} to the
+     * goal, both included, or null if there is none.
+     */
+    public long[] solve(long start) {
+        int distance = getDistance(start);
+        if (distance < 0) return null;
+        long[] path = new long[distance + 1];
+        path[0] = start;
+        long state = start;
+        for (int step = 1; step <= distance; step++) {
+            int blank = packing.blank(state);
+            for (int from : packing.movesFrom(blank)) {
+                long next = PackedBoard.slide(state, blank, from);
+                if (distances[index(next)] == distance - step) {
+                    state = next;
+                    break;
+                }
+            }
+            path[step] = state;
+        }
+        return path;
+    }
+}
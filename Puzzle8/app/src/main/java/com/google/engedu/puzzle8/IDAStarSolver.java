@@ -0,0 +1,136 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.puzzle8;
+
+/**
+ * Iterative-deepening A* for sliding puzzles of any size.
+ *
+ * Each iteration is a depth-first search that cuts off at g + h > bound,
+ * and the next bound is the smallest f that was cut off, so memory is just
+ * the current path however hard the board. The board is a single int array
+ * changed in place, the heuristic follows each move incrementally and
+ * moves come from precomputed tables, so the search allocates nothing.
+ * Moving the blank straight back is never tried.
+ */
+public class IDAStarSolver {
+
+    private static final int FOUND = -1;
+
+    private final int size, cells;
+    private final PuzzleHeuristic heuristic;
+    // moves[b] lists the cells whose tile can slide into a blank at b.
+    private final int[][] moves;
+    // Bounds are only ever raised by at least 1, so a weight above 1 trades
+    // optimality for speed by inflating h; 1 keeps solutions optimal.
+    private final int weight;
+    private int[] board;
+    private int[] path;
+    private long expanded;
+    private volatile boolean cancelled;
+
+    public IDAStarSolver(int size, PuzzleHeuristic heuristic) {
+        this(size, heuristic, 1);
+    }
+
+    public IDAStarSolver(int size, PuzzleHeuristic heuristic, int weight) {
+        this.size = size;
+        this.cells = size * size;
+        this.heuristic = heuristic;
+        this.weight = weight;
+        moves = PuzzleMoves.blankMoves(size);
+    }
+
+    /**
+     * Number of nodes expanded by the last call to {@link #solve}.
+     */
+    public long getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * Makes {@link #solve} give up, whether it is already running on
+     * another thread or yet to start. A cancelled solver stays cancelled.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns the cells the blank visits on the way to the goal, one per
+     * move, or null if the board is unsolvable or the solver was
+     * cancelled. {@code start} is not modified.
+     */
+    public int[] solve(int[] start) {
+        expanded = 0;
+        if (!PuzzleMoves.isSolvable(start, size)) return null;
+        board = start.clone();
+        int blank = 0;
+        while (board[blank] != 0) blank++;
+        int h = heuristic.reset(board);
+        int bound = weight * h;
+        while (true) {
+            // A path never needs more moves than the bound it was found under.
+            if (path == null || path.length < bound + 1) path = new int[2 * bound + 2];
+            int result = search(blank, -1, 0, h, bound);
+            if (result == FOUND) break;
+            if (result == Integer.MAX_VALUE || cancelled) return null;
+            bound = result;
+        }
+        int length = 0;
+        while (path[length] >= 0) length++;
+        int[] solution = new int[length];
+        System.arraycopy(path, 0, solution, 0, length);
+        return solution;
+    }
+
+    // Heuristics need not cover every tile, so h = 0 alone is not the goal.
+    private boolean isGoal() {
+        for (int cell = 0; cell < cells - 1; cell++) {
+            if (board[cell] != cell + 1) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns FOUND, or the smallest f above the bound seen below here.
+     */
+    private int search(int blank, int previous, int g, int h, int bound) {
+        int f = g + weight * h;
+        if (f > bound) return f;
+        if (h == 0 && isGoal()) {
+            path[g] = -1;
+            return FOUND;
+        }
+        if (cancelled) return Integer.MAX_VALUE;
+        expanded++;
+        int min = Integer.MAX_VALUE;
+        for (int from : moves[blank]) {
+            if (from == previous) continue;
+            int value = board[from];
+            board[blank] = value;
+            board[from] = 0;
+            int next = heuristic.update(board, value, from, blank);
+            path[g] = from;
+            int result = search(from, blank, g + 1, next, bound);
+            board[from] = value;
+            board[blank] = 0;
+            heuristic.update(board, value, blank, from);
+            if (result == FOUND) return FOUND;
+            if (result < min) min = result;
+        }
+        return min;
+    }
+}
@@ -0,0 +1,128 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.puzzle8;
+
+/**
+ * Manhattan distance plus linear conflicts.
+ *
+ * Two tiles in their goal row (or column) but in the wrong order there
+ * cannot pass each other without one leaving the line, which costs two
+ * moves Manhattan distance does not count. Per line, the fewest tiles to
+ * take out is the number of tiles in their goal line minus the longest
+ * increasing run of their goal positions, and each of those adds 2.
+ *
+ * A move changes one tile's Manhattan term and at most two lines: moving
+ * sideways changes the tile's column but not the order of its row, and
+ * moving vertically the reverse. Only those lines are recounted.
+ */
+public class LinearConflictHeuristic implements PuzzleHeuristic {
+
+    private final int size;
+    private final int[] rowConflicts, colConflicts;
+    // Scratch for the longest increasing subsequence of one line.
+    private final int[] sequence, tails;
+    private int manhattan, conflicts;
+
+    public LinearConflictHeuristic(int size) {
+        this.size = size;
+        rowConflicts = new int[size];
+        colConflicts = new int[size];
+        sequence = new int[size];
+        tails = new int[size];
+    }
+
+    @Override
+    public int reset(int[] board) {
+        manhattan = 0;
+        for (int cell = 0; cell < board.length; cell++) {
+            if (board[cell] != 0) manhattan += distance(board[cell], cell);
+        }
+        conflicts = 0;
+        for (int line = 0; line < size; line++) {
+            rowConflicts[line] = rowConflicts(board, line);
+            colConflicts[line] = colConflicts(board, line);
+            conflicts += rowConflicts[line] + colConflicts[line];
+        }
+        return manhattan + conflicts;
+    }
+
+    @Override
+    public int update(int[] board, int value, int from, int to) {
+        manhattan += distance(value, to) - distance(value, from);
+        if (from / size == to / size) {
+            recountColumn(board, from % size);
+            recountColumn(board, to % size);
+        } else {
+            recountRow(board, from / size);
+            recountRow(board, to / size);
+        }
+        return manhattan + conflicts;
+    }
+
+    private int distance(int value, int cell) {
+        int home = value - 1;
+        return Math.abs(home % size - cell % size) + Math.abs(home / size - cell / size);
+    }
+
+    private void recountRow(int[] board, int row) {
+        int count = rowConflicts(board, row);
+        conflicts += count - rowConflicts[row];
+        rowConflicts[row] = count;
+    }
+
+    private void recountColumn(int[] board, int col) {
+        int count = colConflicts(board, col);
+        conflicts += count - colConflicts[col];
+        colConflicts[col] = count;
+    }
+
+    private int rowConflicts(int[] board, int row) {
+        int n = 0;
+        for (int col = 0; col < size; col++) {
+            int value = board[row * size + col];
+            if (value != 0 && (value - 1) / size == row) sequence[n++] = (value - 1) % size;
+        }
+        return 2 * (n - longestIncreasing(n));
+    }
+
+    private int colConflicts(int[] board, int col) {
+        int n = 0;
+        for (int row = 0; row < size; row++) {
+            int value = board[row * size + col];
+            if (value != 0 && (value - 1) % size == col) sequence[n++] = (value - 1) / size;
+        }
+        return 2 * (n - longestIncreasing(n));
+    }
+
+    /**
+     * Length of the longest increasing subsequence of sequence[0, n), by
+     * patience sorting; the values are distinct.
+     */
+    private int longestIncreasing(int n) {
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int lo = 0, hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (tails[mid] < sequence[i]) lo = mid + 1;
+                else hi = mid;
+            }
+            tails[lo] = sequence[i];
+            if (lo == length) length++;
+        }
+        return length;
+    }
+}
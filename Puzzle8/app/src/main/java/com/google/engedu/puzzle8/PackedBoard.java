@@ -0,0 +1,102 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.puzzle8;
+
+/**
+ * Search-only encoding of a sliding puzzle as a single long.
+ *
+ * Cell i (row-major) takes bits 4i to 4i + 3 and holds the tile number plus
+ * one, with 0 for the blank, so boards up to 4x4 fit. The cells the blank
+ * can swap with are precomputed per blank position, and a move is a couple
+ * of shifts and masks; searching over packed states allocates nothing.
+ * Boards are only turned back into PuzzleTiles for rendering.
+ */
+public class PackedBoard {
+
+    public static final int MAX_SIZE = 4;
+    private static final int BITS = 4;
+    private static final long MASK = 0xf;
+
+    private final int size;
+    private final int cells;
+    // moves[b] lists the cells whose tile can slide into a blank at b.
+    private final int[][] moves;
+    private final long goal;
+
+    public PackedBoard(int size) {
+        if (size < 2 || size > MAX_SIZE)
+            throw new IllegalArgumentException("Cannot pack a " + size + "x" + size + " board");
+        this.size = size;
+        this.cells = size * size;
+        moves = PuzzleMoves.blankMoves(size);
+        long solved = 0;
+        for (int i = 0; i < cells - 1; i++) solved = set(solved, i, i + 1);
+        goal = solved;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getGoal() {
+        return goal;
+    }
+
+    /**
+     * Cells whose tile can slide into a blank at {@code blank}. The
+     * returned array is shared and must not be modified.
+     */
+    public int[] movesFrom(int blank) {
+        return moves[blank];
+    }
+
+    /**
+     * Returns the tile number plus one at {@code cell}, or 0 for the blank.
+     */
+    public static int get(long state, int cell) {
+        return (int) (state >>> (BITS * cell)) & (int) MASK;
+    }
+
+    public static long set(long state, int cell, int value) {
+        int shift = BITS * cell;
+        return (state & ~(MASK << shift)) | ((long) value << shift);
+    }
+
+    /**
+     * Slides the tile at {@code from} into the blank at {@code blank}.
+     */
+    public static long slide(long state, int blank, int from) {
+        long value = (state >>> (BITS * from)) & MASK;
+        return (state & ~(MASK << (BITS * from))) | (value << (BITS * blank));
+    }
+
+    public int blank(long state) {
+        for (int cell = 0; cell < cells; cell++) {
+            if (((state >>> (BITS * cell)) & MASK) == 0) return cell;
+        }
+        throw new IllegalArgumentException("No blank in " + Long.toHexString(state));
+    }
+
+    /**
+     * True if the goal can be reached from {@code state}; see
+     * {@link PuzzleMoves#isSolvable}.
+     */
+    public boolean isSolvable(long state) {
+        int[] board = new int[cells];
+        for (int cell = 0; cell < cells; cell++) board[cell] = get(state, cell);
+        return PuzzleMoves.isSolvable(board, size);
+    }
+}
@@ -0,0 +1,356 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.puzzle8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Moves needed to bring a subset of the tiles home, for every placement.
+ *
+ * Only the pattern tiles' cells and the blank matter; every other tile is
+ * treated as blank too. Moving one of those costs nothing, so databases
+ * over disjoint patterns can be added and the sum is still admissible.
+ * A placement of k tiles among n cells is numbered by its positions as a
+ * mixed-radix number (n, n - 1, ..., n - k + 1), each digit counting only
+ * the cells not taken by earlier tiles, and the database holds one byte
+ * per placement.
+ *
+ * The BFS runs backwards from the goal over (placement, blank) pairs in
+ * cost layers. Whenever a pair is reached, everything the blank can reach
+ * through non-pattern cells joins the same layer for free, so layers are
+ * closed under zero-cost moves and the first layer to reach a placement
+ * gives its distance.
+ *
+ * File layout (big-endian): magic, version, database count, then per
+ * database the board size, the tile count, the tiles and the bytes, which
+ * the loader maps instead of copying. The app ships the 15-puzzle set
+ * built by {@link #main} as the uncompressed asset patterns4.pdb.
+ */
+public class PatternDatabase {
+
+    private static final int MAGIC = 0x50385044; // "P8PD"
+    private static final int VERSION = 1;
+
+    /** The 6-6-3 split of the 15-puzzle into disjoint patterns. */
+    public static final int[][] PARTITION_4 = {
+            { 1, 5, 6, 9, 10, 13 },
+            { 7, 8, 11, 12, 14, 15 },
+            { 2, 3, 4 },
+    };
+
+    private final int size;
+    private final int cells;
+    // Tile values (number plus one, as in PackedBoard) in index digit order.
+    private final int[] tiles;
+    private final ByteBuffer distances;
+
+    private PatternDatabase(int size, int[] tiles, ByteBuffer distances) {
+        this.size = size;
+        this.cells = size * size;
+        this.tiles = tiles;
+        this.distances = distances;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int[] getTiles() {
+        return tiles.clone();
+    }
+
+    public int getEntryCount() {
+        return distances.capacity();
+    }
+
+    /**
+     * Number of placements of k tiles on n cells, n! / (n - k)!.
+     */
+    static int placements(int cells, int k) {
+        long count = 1;
+        for (int i = 0; i < k; i++) count *= cells - i;
+        if (count > Integer.MAX_VALUE / cells)
+            throw new IllegalArgumentException(k + " tiles on " + cells + " cells is too many");
+        return (int) count;
+    }
+
+    /**
+     * Index of the placement where tile value v sits at cellOf[v].
+     */
+    public int index(int[] cellOf) {
+        int index = 0;
+        long used = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            int cell = cellOf[tiles[i]];
+            int digit = cell - Long.bitCount(used & ((1L << cell) - 1));
+            index = index * (cells - i) + digit;
+            used |= 1L << cell;
+        }
+        return index;
+    }
+
+    /**
+     * Moves the pattern tiles need to get home, with tile value v at
+     * cellOf[v].
+     */
+    public int getDistance(int[] cellOf) {
+        return distances.get(index(cellOf));
+    }
+
+    /**
+     * Runs the layered BFS for the pattern {@code tiles} on a size x size
+     * board.
+     */
+    public static PatternDatabase build(int size, int[] tiles) {
+        return new Builder(size, tiles.clone()).run();
+    }
+
+    /**
+     * Builds the databases for each pattern of {@code partition}.
+     */
+    public static List<PatternDatabase> build(int size, int[][] partition) {
+        List<PatternDatabase> databases = new ArrayList<>();
+        for (int[] tiles : partition) databases.add(build(size, tiles));
+        return databases;
+    }
+
+    public static void write(List<PatternDatabase> databases, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(databases.size());
+        for (PatternDatabase database : databases) {
+            out.writeInt(database.size);
+            out.writeInt(database.tiles.length);
+            for (int tile : database.tiles) out.writeInt(tile);
+            ByteBuffer distances = database.distances.duplicate();
+            distances.clear();
+            byte[] chunk = new byte[8192];
+            while (distances.hasRemaining()) {
+                int n = Math.min(chunk.length, distances.remaining());
+                distances.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Maps the file behind {@code channel} and returns the databases
+     * stored there, which read straight from the mapping.
+     */
+    public static List<PatternDatabase> read(FileChannel channel) throws IOException {
+        return read(channel, 0, channel.size());
+    }
+
+    /**
+     * Maps {@code length} bytes of {@code channel} starting at
+     * {@code offset}, such as an uncompressed asset inside the APK, and
+     * returns the databases stored there.
+     */
+    public static List<PatternDatabase> read(FileChannel channel, long offset, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        return read(buffer);
+    }
+
+    static List<PatternDatabase> read(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            throw new IOException("Not a pattern database file");
+        int count = buffer.getInt();
+        List<PatternDatabase> databases = new ArrayList<>(count);
+        for (int d = 0; d < count; d++) {
+            int size = buffer.getInt();
+            int[] tiles = new int[buffer.getInt()];
+            for (int i = 0; i < tiles.length; i++) tiles[i] = buffer.getInt();
+            int entries = placements(size * size, tiles.length);
+            if (buffer.remaining() < entries) throw new IOException("Truncated pattern database");
+            ByteBuffer distances = buffer.slice();
+            distances.limit(entries);
+            buffer.position(buffer.position() + entries);
+            databases.add(new PatternDatabase(size, tiles, distances.slice()));
+        }
+        return databases;
+    }
+
+    /**
+     * Builds the 15-puzzle databases into args[0], which is how
+     * assets/patterns4.pdb is made.
+     */
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        List<PatternDatabase> databases = build(4, PARTITION_4);
+        OutputStream out = new FileOutputStream(args[0]);
+        try {
+            write(databases, out);
+        } finally {
+            out.close();
+        }
+        System.out.printf("Built %d databases in %d ms%n",
+                databases.size(), (System.nanoTime() - start) / 1000000);
+    }
+
+    private static class Builder {
+        final int size, cells, k;
+        final int[] tiles;
+        final byte[] distances;
+        // One bit per (placement, blank) pair, indexed placement * cells + blank.
+        final long[] visited, current, next;
+        final int[] positions, occupant, stack;
+        final int[][] moves;
+
+        Builder(int size, int[] tiles) {
+            this.size = size;
+            this.cells = size * size;
+            this.k = tiles.length;
+            this.tiles = tiles;
+            int count = placements(cells, k);
+            distances = new byte[count];
+            Arrays.fill(distances, (byte) -1);
+            int words = (int) (((long) count * cells + 63) >>> 6);
+            visited = new long[words];
+            current = new long[words];
+            next = new long[words];
+            positions = new int[k];
+            occupant = new int[cells];
+            stack = new int[cells];
+            moves = PuzzleMoves.blankMoves(size);
+        }
+
+        PatternDatabase run() {
+            for (int i = 0; i < k; i++) positions[i] = tiles[i] - 1;
+            reach(encode(), cells - 1, current, 0);
+            long[] layer = current, following = next;
+            for (int cost = 0; ; cost++) {
+                boolean any = false;
+                int decoded = -1;
+                for (int w = 0; w < layer.length; w++) {
+                    long bits = layer[w];
+                    while (bits != 0) {
+                        int state = (w << 6) + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        int placement = state / cells, blank = state % cells;
+                        if (placement != decoded) {
+                            decode(placement);
+                            decoded = placement;
+                        }
+                        expand(blank, following, cost + 1);
+                        any = true;
+                    }
+                }
+                if (!any) break;
+                long[] swap = layer;
+                layer = following;
+                following = swap;
+                Arrays.fill(following, 0);
+            }
+            return new PatternDatabase(size, tiles, ByteBuffer.wrap(distances));
+        }
+
+        /**
+         * Slides each pattern tile next to the blank into it, a move that
+         * costs one.
+         */
+        private void expand(int blank, long[] layer, int cost) {
+            for (int from : moves[blank]) push(blank, from, layer, cost);
+        }
+
+        private void push(int blank, int from, long[] layer, int cost) {
+            int tile = occupant[from];
+            if (tile < 0) return;
+            positions[tile] = blank;
+            int placement = encode();
+            if (!get(visited, placement * cells + from)) reach(placement, from, layer, cost);
+            positions[tile] = from;
+        }
+
+        /**
+         * Adds (placement, blank) and everything the blank can reach from
+         * there for free to {@code layer}; positions holds the placement.
+         */
+        private void reach(int placement, int blank, long[] layer, int cost) {
+            if (distances[placement] < 0) distances[placement] = (byte) cost;
+            long occupied = 0;
+            for (int i = 0; i < k; i++) occupied |= 1L << positions[i];
+            int base = placement * cells;
+            int top = 0;
+            set(visited, base + blank);
+            set(layer, base + blank);
+            stack[top++] = blank;
+            while (top > 0) {
+                int cell = stack[--top];
+                for (int from : moves[cell]) top = flood(from, occupied, base, layer, top);
+            }
+        }
+
+        private int flood(int cell, long occupied, int base, long[] layer, int top) {
+            if ((occupied & (1L << cell)) != 0 || get(visited, base + cell)) return top;
+            set(visited, base + cell);
+            set(layer, base + cell);
+            stack[top++] = cell;
+            return top;
+        }
+
+        private int encode() {
+            int index = 0;
+            long used = 0;
+            for (int i = 0; i < k; i++) {
+                int cell = positions[i];
+                index = index * (cells - i) + cell - Long.bitCount(used & ((1L << cell) - 1));
+                used |= 1L << cell;
+            }
+            return index;
+        }
+
+        private void decode(int placement) {
+            for (int i = k - 1; i >= 0; i--) {
+                positions[i] = placement % (cells - i);
+                placement /= cells - i;
+            }
+            // Turn each digit into the cell it counts to among the free ones.
+            long used = 0;
+            for (int i = 0; i < k; i++) {
+                int digit = positions[i];
+                int cell = 0;
+                while (true) {
+                    if ((used & (1L << cell)) == 0 && digit-- == 0) break;
+                    cell++;
+                }
+                positions[i] = cell;
+                used |= 1L << cell;
+            }
+            Arrays.fill(occupant, -1);
+            for (int i = 0; i < k; i++) occupant[positions[i]] = i;
+        }
+
+        private static boolean get(long[] bits, int i) {
+            return (bits[i >>> 6] & (1L << i)) != 0;
+        }
+
+        private static void set(long[] bits, int i) {
+            bits[i >>> 6] |= 1L << i;
+        }
+    }
+}
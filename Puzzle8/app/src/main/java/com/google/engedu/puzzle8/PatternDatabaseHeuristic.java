@@ -0,0 +1,76 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.puzzle8;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sum of disjoint pattern databases.
+ *
+ * Tracks where every tile is, so a move only re-indexes the database
+ * holding the tile that moved. Tiles in no pattern count for nothing.
+ */
+public class PatternDatabaseHeuristic implements PuzzleHeuristic {
+
+    private final PatternDatabase[] databases;
+    // Database holding each tile value, or -1.
+    private final int[] patternOf;
+    private final int[] cellOf;
+    private final int[] values;
+    private int total;
+
+    public PatternDatabaseHeuristic(List<PatternDatabase> databases) {
+        this.databases = databases.toArray(new PatternDatabase[databases.size()]);
+        int size = this.databases[0].getSize();
+        patternOf = new int[size * size];
+        cellOf = new int[size * size];
+        values = new int[this.databases.length];
+        Arrays.fill(patternOf, -1);
+        for (int d = 0; d < this.databases.length; d++) {
+            if (this.databases[d].getSize() != size)
+                throw new IllegalArgumentException("Databases are for different board sizes");
+            for (int tile : this.databases[d].getTiles()) {
+                if (patternOf[tile] >= 0)
+                    throw new IllegalArgumentException("Tile " + tile + " is in two patterns");
+                patternOf[tile] = d;
+            }
+        }
+    }
+
+    @Override
+    public int reset(int[] board) {
+        for (int cell = 0; cell < board.length; cell++) cellOf[board[cell]] = cell;
+        total = 0;
+        for (int d = 0; d < databases.length; d++) {
+            values[d] = databases[d].getDistance(cellOf);
+            total += values[d];
+        }
+        return total;
+    }
+
+    @Override
+    public int update(int[] board, int value, int from, int to) {
+        cellOf[value] = to;
+        cellOf[0] = from;
+        int d = patternOf[value];
+        if (d < 0) return total;
+        int distance = databases[d].getDistance(cellOf);
+        total += distance - values[d];
+        values[d] = distance;
+        return total;
+    }
+}
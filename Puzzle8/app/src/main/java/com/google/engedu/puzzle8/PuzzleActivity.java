@@ -74,6 +74,11 @@ public class PuzzleActivity extends AppCompatActivity {
         if (id == R.id.action_settings) {
             return true;
         }
+        if (id == R.id.action_size_3 || id == R.id.action_size_4 || id == R.id.action_size_5) {
+            item.setChecked(true);
+            boardView.setSize(id == R.id.action_size_3 ? 3 : id == R.id.action_size_4 ? 4 : 5);
+            return true;
+        }
 
         return super.onOptionsItemSelected(item);
     }
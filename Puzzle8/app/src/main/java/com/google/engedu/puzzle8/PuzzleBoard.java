@@ -20,40 +20,44 @@ import android.graphics.Canvas;
 import android.graphics.Picture;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 
 public class PuzzleBoard {
 
-    private static final int NUM_TILES = 3;
+    public static final int DEFAULT_SIZE = 3;
     private static final int[][] NEIGHBOUR_COORDS = {
             { -1, 0 },
             { 1, 0 },
             { 0, -1 },
             { 0, 1 }
     };
+    // Tiles per side.
+    private final int size;
     private ArrayList<PuzzleTile> tiles;
     private PuzzleBoard previous;
     private int steps;
 
     public PuzzleBoard getPrevious() { return previous; }
 
-    PuzzleBoard(Bitmap bitmap, int parentWidth) {
+    PuzzleBoard(Bitmap bitmap, int parentWidth, int size) {
+        this.size = size;
         steps = 0;
         previous = null;
         tiles = new ArrayList<>();
         Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, parentWidth, parentWidth, true);
-        for (int y=0; y<NUM_TILES; y++) {
-            for (int x=0; x<NUM_TILES; x++) {
-                int num = y * NUM_TILES + x;
-                if (num != NUM_TILES * NUM_TILES - 1) {
+        for (int y=0; y<size; y++) {
+            for (int x=0; x<size; x++) {
+                int num = y * size + x;
+                if (num != size * size - 1) {
                     Bitmap tileBitmap = Bitmap.createBitmap(
                             scaledBitmap,
-                            x * scaledBitmap.getWidth() / NUM_TILES,
-                            y * scaledBitmap.getHeight() / NUM_TILES,
-                            parentWidth / NUM_TILES,
-                            parentWidth / NUM_TILES
+                            x * scaledBitmap.getWidth() / size,
+                            y * scaledBitmap.getHeight() / size,
+                            parentWidth / size,
+                            parentWidth / size
                     );
-                    PuzzleTile tile = new PuzzleTile(tileBitmap, num);
+                    PuzzleTile tile = new PuzzleTile(tileBitmap, num, size);
                     tiles.add(tile);
                 } else  tiles.add(null);
             }
@@ -61,11 +65,76 @@ public class PuzzleBoard {
     }
 
     PuzzleBoard(PuzzleBoard otherBoard, int steps) {
+        size = otherBoard.size;
         previous = otherBoard;
         this.steps = steps + 1;
         tiles = (ArrayList<PuzzleTile>) otherBoard.tiles.clone();
     }
 
+    /**
+     * Builds a board showing {@code cells} with the tiles of {@code otherBoard}.
+     */
+    PuzzleBoard(PuzzleBoard otherBoard, int[] cells, int steps) {
+        size = otherBoard.size;
+        previous = null;
+        this.steps = steps;
+        PuzzleTile[] byNumber = new PuzzleTile[size * size];
+        for (PuzzleTile tile : otherBoard.tiles) {
+            if (tile != null) byNumber[tile.getNumber()] = tile;
+        }
+        tiles = new ArrayList<>();
+        for (int value : cells) tiles.add(value == 0 ? null : byNumber[value - 1]);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns this board in the encoding the solvers share: tile number
+     * plus one in row-major order, 0 for the blank.
+     */
+    public int[] toCells() {
+        int[] cells = new int[size * size];
+        for (int i = 0; i < cells.length; i++) {
+            PuzzleTile tile = tiles.get(i);
+            cells[i] = tile == null ? 0 : tile.getNumber() + 1;
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the board after the tile at {@code cell} slides into the blank.
+     */
+    public PuzzleBoard slide(int cell) {
+        PuzzleBoard next = new PuzzleBoard(this, steps);
+        next.swapTiles(next.tiles.indexOf(null), cell);
+        return next;
+    }
+
+    /**
+     * Returns a copy scrambled by a random walk of {@code moves} moves that
+     * never undoes the move just made.
+     */
+    public PuzzleBoard shuffled(int moves, Random random) {
+        int[] cells = toCells();
+        int[][] blankMoves = PuzzleMoves.blankMoves(size);
+        int blank = tiles.indexOf(null);
+        int previous = -1;
+        for (int i = 0; i < moves; i++) {
+            int[] from = blankMoves[blank];
+            int cell;
+            do {
+                cell = from[random.nextInt(from.length)];
+            } while (cell == previous);
+            cells[blank] = cells[cell];
+            cells[cell] = 0;
+            previous = blank;
+            blank = cell;
+        }
+        return new PuzzleBoard(this, cells, 0);
+    }
+
     public void reset() {
         // Nothing for now but you may have things to reset once you implement the solver.
     }
@@ -81,20 +150,20 @@ public class PuzzleBoard {
         if (tiles == null) {
             return;
         }
-        for (int i = 0; i < NUM_TILES * NUM_TILES; i++) {
+        for (int i = 0; i < size * size; i++) {
             PuzzleTile tile = tiles.get(i);
             if (tile != null) {
-                tile.draw(canvas, i % NUM_TILES, i / NUM_TILES);
+                tile.draw(canvas, i % size, i / size);
             }
         }
     }
 
     public boolean click(float x, float y) {
-        for (int i = 0; i < NUM_TILES * NUM_TILES; i++) {
+        for (int i = 0; i < size * size; i++) {
             PuzzleTile tile = tiles.get(i);
             if (tile != null) {
-                if (tile.isClicked(x, y, i % NUM_TILES, i / NUM_TILES)) {
-                    return tryMoving(i % NUM_TILES, i / NUM_TILES);
+                if (tile.isClicked(x, y, i % size, i / size)) {
+                    return tryMoving(i % size, i / size);
                 }
             }
         }
@@ -105,7 +174,7 @@ public class PuzzleBoard {
         for (int[] delta : NEIGHBOUR_COORDS) {
             int nullX = tileX + delta[0];
             int nullY = tileY + delta[1];
-            if (nullX >= 0 && nullX < NUM_TILES && nullY >= 0 && nullY < NUM_TILES &&
+            if (nullX >= 0 && nullX < size && nullY >= 0 && nullY < size &&
                     tiles.get(XYtoIndex(nullX, nullY)) == null) {
                 swapTiles(XYtoIndex(nullX, nullY), XYtoIndex(tileX, tileY));
                 return true;
@@ -116,7 +185,7 @@ public class PuzzleBoard {
     }
 
     public boolean resolved() {
-        for (int i = 0; i < NUM_TILES * NUM_TILES - 1; i++) {
+        for (int i = 0; i < size * size - 1; i++) {
             PuzzleTile tile = tiles.get(i);
             if (tile == null || tile.getNumber() != i)
                 return false;
@@ -125,7 +194,7 @@ public class PuzzleBoard {
     }
 
     private int XYtoIndex(int x, int y) {
-        return x + y * NUM_TILES;
+        return x + y * size;
     }
 
     protected void swapTiles(int i, int j) {
@@ -133,36 +202,4 @@ public class PuzzleBoard {
         tiles.set(i, tiles.get(j));
         tiles.set(j, temp);
     }
-
-    public ArrayList<PuzzleBoard> neighbours() {
-        ArrayList<PuzzleBoard> configurations = new ArrayList<>();
-        int empty_tile = -1;
-        for(int i=0; i<tiles.size(); i++) if(tiles.get(i) == null) { empty_tile = i; break; }
-        int x = empty_tile / NUM_TILES, y = empty_tile % NUM_TILES;
-        for(int i=0; i<4; i++) {
-            int xx = NEIGHBOUR_COORDS[i][0] + x, yy = NEIGHBOUR_COORDS[i][1] + y;
-            if(xx >= 0 && xx < NUM_TILES && yy >= 0 && yy < NUM_TILES) {
-                PuzzleBoard board_copy = new PuzzleBoard(this, steps);
-                PuzzleTile temp = board_copy.tiles.get(XYtoIndex(xx, yy));
-                board_copy.tiles.set(XYtoIndex(xx, yy), null);
-                board_copy.tiles.set(empty_tile, temp);
-                configurations.add(board_copy);
-            }
-        }
-        return configurations;
-    }
-
-    public int priority() {
-        int manhatten_dist = steps;
-        for(int i=0; i<NUM_TILES * NUM_TILES; i++) {
-            PuzzleTile tile = tiles.get(i);
-            if(tile != null) {
-                int x = tile.getX(), y = tile.getY();
-                int x_ = i % 3, y_ = i / 3;
-                manhatten_dist += Math.abs(x - x_) + Math.abs(y - y_);
-            }
-        }
-        return manhatten_dist;
-    }
-
 }
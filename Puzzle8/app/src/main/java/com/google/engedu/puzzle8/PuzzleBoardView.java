@@ -17,35 +17,189 @@ package com.google.engedu.puzzle8;
 
 import android.app.Activity;
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.RelativeLayout;
 import android.widget.Toast;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class PuzzleBoardView extends View {
     public static final int NUM_SHUFFLE_STEPS = 40;
+    // Inflation of the heuristic on boards too big to solve optimally.
+    private static final int LARGE_BOARD_WEIGHT = 2;
     private Activity activity;
     private PuzzleBoard puzzleBoard;
     private ArrayList<PuzzleBoard> animation;
     private Random random = new Random();
+    private Bitmap imageBitmap;
+    // Read by searches on the executor to notice they are stale.
+    private volatile int size = PuzzleBoard.DEFAULT_SIZE;
+    // Searches run off the UI thread, one at a time.
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private boolean solving;
+    // The search in progress, so changing the board size can stop it.
+    private volatile IDAStarSolver running;
+    // Built or loaded on the executor, so solves queued behind them can use them.
+    private DistanceTable distanceTable;
+    private List<PatternDatabase> patternDatabases;
+    private final AssetManager assets;
+    private final File patternFile;
 
     public PuzzleBoardView(Context context) {
         super(context);
         activity = (Activity) context;
         animation = null;
+        final File tableFile = new File(context.getFilesDir(), "distances3.bin");
+        assets = context.getAssets();
+        patternFile = new File(context.getFilesDir(), "patterns4.bin");
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                distanceTable = loadDistanceTable(tableFile);
+            }
+        });
+    }
+
+    /**
+     * Reads the 8-puzzle distance table saved by an earlier launch, or
+     * builds it by BFS and saves it for next time.
+     */
+    private static DistanceTable loadDistanceTable(File file) {
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                return DistanceTable.read(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.i("Puzzle8", "Building distance table: " + e.getMessage());
+        }
+        DistanceTable table = DistanceTable.build();
+        try {
+            OutputStream out = new FileOutputStream(file);
+            try {
+                table.write(out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.w("Puzzle8", "Could not save distance table", e);
+        }
+        return table;
+    }
+
+    /**
+     * Maps the 15-puzzle pattern databases from the uncompressed
+     * patterns4.pdb asset built offline by PatternDatabase.main.
+     */
+    private static List<PatternDatabase> loadPatternDatabases(AssetManager assets, File file) {
+        try {
+            AssetFileDescriptor descriptor = assets.openFd("patterns4.pdb");
+            FileInputStream stream = descriptor.createInputStream();
+            try {
+                return PatternDatabase.read(stream.getChannel(),
+                        descriptor.getStartOffset(), descriptor.getLength());
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            Log.w("Puzzle8", "No pattern database asset: " + e.getMessage());
+        }
+        return loadOrBuildPatternDatabases(file);
+    }
+
+    /**
+     * Fallback for builds without the asset: maps the databases saved by an
+     * earlier launch, or builds and saves them. Building takes seconds and
+     * tens of megabytes, and every solve waits behind it.
+     */
+    private static List<PatternDatabase> loadOrBuildPatternDatabases(File file) {
+        try {
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                // The mapping stays valid once the file is closed.
+                return PatternDatabase.read(in.getChannel());
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.i("Puzzle8", "Building pattern databases: " + e.getMessage());
+        }
+        List<PatternDatabase> databases = PatternDatabase.build(4, PatternDatabase.PARTITION_4);
+        try {
+            OutputStream out = new FileOutputStream(file);
+            try {
+                PatternDatabase.write(databases, out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.w("Puzzle8", "Could not save pattern databases", e);
+        }
+        return databases;
     }
 
     public void initialize(Bitmap imageBitmap, RelativeLayout container) {
-        int width = getWidth();
-        puzzleBoard = new PuzzleBoard(imageBitmap, width);
+        this.imageBitmap = imageBitmap;
+        puzzleBoard = new PuzzleBoard(imageBitmap, getWidth(), size);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Switches to a size x size board, abandoning the current game and any
+     * search running for it.
+     */
+    public void setSize(int size) {
+        if (size == this.size) return;
+        this.size = size;
+        IDAStarSolver search = running;
+        if (search != null) search.cancel();
+        animation = null;
+        if (imageBitmap != null) puzzleBoard = new PuzzleBoard(imageBitmap, getWidth(), size);
+        if (size == 4 && !executor.isShutdown()) {
+            // Get the databases ready before the first solve asks for them.
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (patternDatabases == null && !executor.isShutdown())
+                        patternDatabases = loadPatternDatabases(assets, patternFile);
+                }
+            });
+        }
+        invalidate();
+    }
+
+    /**
+     * Stops the search in progress and lets the executor's thread exit once
+     * whatever is already queued has returned; queued solves give up.
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        executor.shutdown();
+        IDAStarSolver search = running;
+        if (search != null) search.cancel();
     }
 
     @Override
@@ -70,11 +224,8 @@ public class PuzzleBoardView extends View {
     }
 
     public void shuffle() {
-        if (animation == null && puzzleBoard != null) {
-            for(int i=0; i<NUM_SHUFFLE_STEPS; i++) {
-                ArrayList<PuzzleBoard> configs = puzzleBoard.neighbours();
-                puzzleBoard = configs.get((int) (Math.random() * configs.size()));
-            }
+        if (animation == null && !solving && puzzleBoard != null) {
+            puzzleBoard = puzzleBoard.shuffled(NUM_SHUFFLE_STEPS, random);
             // puzzleBoard.reset();
             invalidate();
         }
@@ -82,7 +233,7 @@ public class PuzzleBoardView extends View {
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        if (animation == null && puzzleBoard != null) {
+        if (animation == null && !solving && puzzleBoard != null) {
             switch(event.getAction()) {
                 case MotionEvent.ACTION_DOWN:
                     if (puzzleBoard.click(event.getX(), event.getY())) {
@@ -98,32 +249,76 @@ public class PuzzleBoardView extends View {
         return super.onTouchEvent(event);
     }
 
-    public Comparator<PuzzleBoard> comp = new Comparator<PuzzleBoard>() {
-        @Override
-        public int compare(PuzzleBoard lhs, PuzzleBoard rhs) {
-            return lhs.priority() - rhs.priority();
-        }
-    };
-
+    /**
+     * Solves the current board on the background executor and animates
+     * the answer once it is back on the UI thread.
+     */
     public void solve() {
-        PriorityQueue<PuzzleBoard> pq = new PriorityQueue<>(1, comp);
-        PuzzleBoard cur = new PuzzleBoard(puzzleBoard, -1);
-        pq.add(cur);
-
-        while(!pq.isEmpty()) {
-            PuzzleBoard config = pq.poll();
-            if(config.resolved()) {
-                ArrayList<PuzzleBoard> solve_steps = new ArrayList<>();
-                while(config.getPrevious() != null) {
-                    solve_steps.add(config);
-                    config = config.getPrevious();
-                }
-                Collections.reverse(solve_steps);
-                animation = solve_steps;
-                invalidate();
-                break;
+        if (puzzleBoard == null || animation != null || solving || executor.isShutdown()) return;
+        solving = true;
+        final PuzzleBoard start = puzzleBoard;
+        final int[] cells = start.toCells();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int[] moves = findMoves(cells, start.getSize());
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        solving = false;
+                        if (puzzleBoard != start) return;
+                        if (moves == null) {
+                            Toast.makeText(activity, "Could not solve this board", Toast.LENGTH_LONG).show();
+                            return;
+                        }
+                        ArrayList<PuzzleBoard> solveSteps = new ArrayList<>();
+                        PuzzleBoard board = start;
+                        for (int cell : moves) {
+                            board = board.slide(cell);
+                            solveSteps.add(board);
+                        }
+                        if (solveSteps.isEmpty()) return;
+                        animation = solveSteps;
+                        invalidate();
+                    }
+                });
             }
-            pq.addAll(config.neighbours());
+        });
+    }
+
+    /**
+     * Returns the cells the blank moves to on the way to the goal, or null.
+     * Runs on the executor. 3x3 boards descend the exact distance table,
+     * 4x4 boards run IDA* on the pattern databases, and bigger boards,
+     * whose optimal solutions can take hours, run IDA* with an inflated
+     * linear-conflict estimate instead.
+     */
+    private int[] findMoves(int[] cells, int size) {
+        if (executor.isShutdown()) return null;
+        if (size == DistanceTable.SIZE) {
+            long state = 0;
+            for (int cell = 0; cell < cells.length; cell++) state = PackedBoard.set(state, cell, cells[cell]);
+            long[] path = distanceTable.solve(state);
+            if (path == null) return null;
+            PackedBoard packing = new PackedBoard(size);
+            int[] moves = new int[path.length - 1];
+            for (int i = 1; i < path.length; i++) moves[i - 1] = packing.blank(path[i]);
+            return moves;
+        }
+        IDAStarSolver search;
+        if (size == 4) {
+            if (patternDatabases == null) patternDatabases = loadPatternDatabases(assets, patternFile);
+            search = new IDAStarSolver(size, new PatternDatabaseHeuristic(patternDatabases));
+        } else {
+            search = new IDAStarSolver(size, new LinearConflictHeuristic(size), LARGE_BOARD_WEIGHT);
+        }
+        running = search;
+        try {
+            // The size may have changed, or the view gone, while this was queued.
+            if (size != this.size || executor.isShutdown()) return null;
+            return search.solve(cells);
+        } finally {
+            running = null;
         }
     }
 }
@@ -0,0 +1,39 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.puzzle8;
+
+/**
+ * Admissible estimate of the moves left, kept up to date move by move.
+ *
+ * Boards are int arrays in row-major order holding the tile number plus
+ * one, with 0 for the blank, as in PackedBoard. Implementations keep
+ * whatever per-board state they need between calls and must not allocate
+ * in {@link #update}, which runs once per node of the search.
+ */
+public interface PuzzleHeuristic {
+
+    /**
+     * Computes the estimate for {@code board} from scratch.
+     */
+    int reset(int[] board);
+
+    /**
+     * Called after tile {@code value} slid from cell {@code from} to cell
+     * {@code to} in {@code board}; returns the new estimate. Undoing a move
+     * is just another update with from and to swapped.
+     */
+    int update(int[] board, int value, int from, int to);
+}
@@ -0,0 +1,71 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.puzzle8;
+
+/**
+ * Move generation and solvability for a size x size sliding puzzle, shared
+ * by the boards, the solvers and the pattern database builder.
+ *
+ * Boards are cells in row-major order holding the tile number plus one,
+ * with 0 for the blank, as in PackedBoard.
+ */
+public class PuzzleMoves {
+
+    private PuzzleMoves() {
+    }
+
+    /**
+     * Returns, for each blank cell b, the cells whose tile can slide into
+     * it, in the order up, down, left, right.
+     */
+    public static int[][] blankMoves(int size) {
+        int cells = size * size;
+        int[][] moves = new int[cells][];
+        for (int b = 0; b < cells; b++) {
+            int x = b % size, y = b / size;
+            int[] from = new int[4];
+            int count = 0;
+            if (y > 0) from[count++] = b - size;
+            if (y < size - 1) from[count++] = b + size;
+            if (x > 0) from[count++] = b - 1;
+            if (x < size - 1) from[count++] = b + 1;
+            moves[b] = new int[count];
+            System.arraycopy(from, 0, moves[b], 0, count);
+        }
+        return moves;
+    }
+
+    /**
+     * True if the goal can be reached from {@code board}: the parity of
+     * the tile permutation must match the blank's (for even sizes, the
+     * rows it is away from the bottom).
+     */
+    public static boolean isSolvable(int[] board, int size) {
+        int inversions = 0;
+        int blank = -1;
+        for (int i = 0; i < board.length; i++) {
+            if (board[i] == 0) {
+                blank = i;
+                continue;
+            }
+            for (int j = i + 1; j < board.length; j++) {
+                if (board[j] != 0 && board[j] < board[i]) inversions++;
+            }
+        }
+        if (size % 2 == 1) return inversions % 2 == 0;
+        return (inversions + size - 1 - blank / size) % 2 == 0;
+    }
+}
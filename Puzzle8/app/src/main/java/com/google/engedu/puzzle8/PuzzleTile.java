@@ -23,17 +23,20 @@ public class PuzzleTile {
 
     private Bitmap bitmap;
     private int number;
+    // Tiles per side of the board this tile belongs to.
+    private int size;
 
-    public PuzzleTile(Bitmap bitmap, int number){
+    public PuzzleTile(Bitmap bitmap, int number, int size){
         this.bitmap = bitmap;
         this.number = number;
+        this.size = size;
     }
 
     public int getNumber() {
         return number;
     }
-    public int getX() { return (number % 3) - 1; }
-    public int getY() { return number / 3; }
+    public int getX() { return number % size; }
+    public int getY() { return number / size; }
 
     public void draw(Canvas canvas, int x, int y) {
         canvas.drawBitmap(bitmap, x * bitmap.getWidth(), y * bitmap.getHeight(), null);
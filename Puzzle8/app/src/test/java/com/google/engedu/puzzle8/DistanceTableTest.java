@@ -0,0 +1,106 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.puzzle8;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DistanceTableTest {
+
+    private static final DistanceTable TABLE = DistanceTable.build();
+
+    /**
+     * Distance to the goal of every solvable 3x3 board, by BFS over packed
+     * states with a hash map instead of the perfect hash.
+     */
+    private static Map<Long, Integer> bruteForceDistances() {
+        PackedBoard packing = new PackedBoard(3);
+        HashMap<Long, Integer> distance = new HashMap<>();
+        long[] queue = new long[DistanceTable.STATES];
+        int head = 0, tail = 0;
+        distance.put(packing.getGoal(), 0);
+        queue[tail++] = packing.getGoal();
+        while (head < tail) {
+            long state = queue[head++];
+            int blank = packing.blank(state);
+            for (int from : packing.movesFrom(blank)) {
+                long next = PackedBoard.slide(state, blank, from);
+                if (distance.containsKey(next)) continue;
+                distance.put(next, distance.get(state) + 1);
+                queue[tail++] = next;
+            }
+        }
+        return distance;
+    }
+
+    @Test
+    public void testMatchesBreadthFirstSearch() {
+        Map<Long, Integer> expected = bruteForceDistances();
+        assertEquals(DistanceTable.STATES, expected.size());
+        boolean[] used = new boolean[DistanceTable.STATES];
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            int index = TABLE.index(entry.getKey());
+            assertTrue(index >= 0 && index < DistanceTable.STATES);
+            assertFalse("Two boards hash to " + index, used[index]);
+            used[index] = true;
+            assertEquals((int) entry.getValue(), TABLE.getDistance(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testSolveFollowsNeighbours() {
+        PackedBoard packing = new PackedBoard(3);
+        Random random = new Random(9);
+        for (int n = 0; n < 500; n++) {
+            long start = PackedBoardTest.randomBoard(3, random);
+            long[] path = TABLE.solve(start);
+            if (!packing.isSolvable(start)) {
+                assertNull(path);
+                assertEquals(-1, TABLE.getDistance(start));
+                continue;
+            }
+            assertEquals(TABLE.getDistance(start) + 1, path.length);
+            assertEquals(start, path[0]);
+            assertEquals(packing.getGoal(), path[path.length - 1]);
+            for (int i = 1; i < path.length; i++) {
+                int blank = packing.blank(path[i - 1]);
+                boolean adjacent = false;
+                for (int from : packing.movesFrom(blank))
+                    adjacent |= PackedBoard.slide(path[i - 1], blank, from) == path[i];
+                assertTrue(adjacent);
+            }
+        }
+    }
+
+    @Test
+    public void testWriteReadRoundTrip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TABLE.write(out);
+        DistanceTable loaded = DistanceTable.read(new ByteArrayInputStream(out.toByteArray()));
+        Random random = new Random(4);
+        for (int n = 0; n < 1000; n++) {
+            long state = PackedBoardTest.randomBoard(3, random);
+            assertEquals(TABLE.getDistance(state), loaded.getDistance(state));
+        }
+    }
+}
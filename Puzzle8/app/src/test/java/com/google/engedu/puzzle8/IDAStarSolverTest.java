@@ -0,0 +1,134 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.puzzle8;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IDAStarSolverTest {
+
+    private static final DistanceTable TABLE = DistanceTable.build();
+
+    static int[] unpack(long state, int size) {
+        int[] board = new int[size * size];
+        for (int cell = 0; cell < board.length; cell++) board[cell] = PackedBoard.get(state, cell);
+        return board;
+    }
+
+    /**
+     * Applies the blank moves of {@code solution} and returns whether they
+     * are legal and end at the goal.
+     */
+    static boolean reachesGoal(int[] start, int size, int[] solution) {
+        int[] board = start.clone();
+        int blank = 0;
+        while (board[blank] != 0) blank++;
+        for (int cell : solution) {
+            if (Math.abs(cell % size - blank % size) + Math.abs(cell / size - blank / size) != 1) return false;
+            board[blank] = board[cell];
+            board[cell] = 0;
+            blank = cell;
+        }
+        for (int cell = 0; cell < board.length - 1; cell++) {
+            if (board[cell] != cell + 1) return false;
+        }
+        return true;
+    }
+
+    @Test
+    public void testSolutionsAreOptimal() {
+        Random random = new Random(17);
+        IDAStarSolver solver = new IDAStarSolver(3, new LinearConflictHeuristic(3));
+        for (int n = 0; n < 200; n++) {
+            long state = PackedBoardTest.randomBoard(3, random);
+            int[] board = unpack(state, 3);
+            int[] solution = solver.solve(board);
+            int distance = TABLE.getDistance(state);
+            if (distance < 0) {
+                assertNull(solution);
+                continue;
+            }
+            assertEquals(distance, solution.length);
+            assertTrue(reachesGoal(board, 3, solution));
+        }
+    }
+
+    @Test
+    public void testWeightedSolutionsStillReachTheGoal() {
+        Random random = new Random(18);
+        IDAStarSolver solver = new IDAStarSolver(3, new LinearConflictHeuristic(3), 2);
+        for (int n = 0; n < 100; n++) {
+            long state = PackedBoardTest.randomBoard(3, random);
+            int[] board = unpack(state, 3);
+            int[] solution = solver.solve(board);
+            if (TABLE.getDistance(state) < 0) continue;
+            assertTrue(solution.length >= TABLE.getDistance(state));
+            assertTrue(reachesGoal(board, 3, solution));
+        }
+    }
+
+    @Test
+    public void testCancelledSolverGivesUp() {
+        IDAStarSolver solver = new IDAStarSolver(3, new LinearConflictHeuristic(3));
+        solver.cancel();
+        assertNull(solver.solve(unpack(PackedBoard.slide(new PackedBoard(3).getGoal(), 8, 7), 3)));
+    }
+
+    @Test
+    public void testHeuristicIsAdmissible() {
+        Random random = new Random(19);
+        LinearConflictHeuristic heuristic = new LinearConflictHeuristic(3);
+        PackedBoard packing = new PackedBoard(3);
+        assertEquals(0, heuristic.reset(unpack(packing.getGoal(), 3)));
+        for (int n = 0; n < 20000; n++) {
+            long state = PackedBoardTest.randomBoard(3, random);
+            if (!packing.isSolvable(state)) continue;
+            assertTrue(heuristic.reset(unpack(state, 3)) <= TABLE.getDistance(state));
+        }
+    }
+
+    @Test
+    public void testUpdateMatchesReset() {
+        Random random = new Random(20);
+        for (int size = 3; size <= 5; size++) {
+            LinearConflictHeuristic incremental = new LinearConflictHeuristic(size);
+            LinearConflictHeuristic fresh = new LinearConflictHeuristic(size);
+            int[] board = new int[size * size];
+            for (int cell = 0; cell < board.length - 1; cell++) board[cell] = cell + 1;
+            int blank = board.length - 1;
+            int h = incremental.reset(board);
+            for (int step = 0; step < 20000; step++) {
+                int x = blank % size, y = blank / size;
+                int from;
+                switch (random.nextInt(4)) {
+                    case 0: from = x > 0 ? blank - 1 : blank + 1; break;
+                    case 1: from = x < size - 1 ? blank + 1 : blank - 1; break;
+                    case 2: from = y > 0 ? blank - size : blank + size; break;
+                    default: from = y < size - 1 ? blank + size : blank - size; break;
+                }
+                int value = board[from];
+                board[blank] = value;
+                board[from] = 0;
+                h = incremental.update(board, value, from, blank);
+                blank = from;
+                assertEquals(fresh.reset(board), h);
+            }
+        }
+    }
+}
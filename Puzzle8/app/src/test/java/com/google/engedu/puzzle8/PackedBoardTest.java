@@ -0,0 +1,108 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.puzzle8;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PackedBoardTest {
+
+    /**
+     * Every board reachable from the goal, by BFS over packed states.
+     */
+    static HashSet<Long> reachable(PackedBoard packing) {
+        HashSet<Long> seen = new HashSet<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        seen.add(packing.getGoal());
+        queue.add(packing.getGoal());
+        while (!queue.isEmpty()) {
+            long state = queue.poll();
+            int blank = packing.blank(state);
+            for (int from : packing.movesFrom(blank)) {
+                long next = PackedBoard.slide(state, blank, from);
+                if (seen.add(next)) queue.add(next);
+            }
+        }
+        return seen;
+    }
+
+    static long randomBoard(int size, Random random) {
+        int cells = size * size;
+        int[] values = new int[cells];
+        for (int i = 0; i < cells; i++) values[i] = i;
+        long state = 0;
+        for (int i = cells - 1; i >= 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = values[j];
+            values[j] = values[i];
+            state = PackedBoard.set(state, i, value);
+        }
+        return state;
+    }
+
+    @Test
+    public void testSlideMovesOneTile() {
+        PackedBoard packing = new PackedBoard(3);
+        long goal = packing.getGoal();
+        for (int cell = 0; cell < 8; cell++) assertEquals(cell + 1, PackedBoard.get(goal, cell));
+        assertEquals(8, packing.blank(goal));
+        long moved = PackedBoard.slide(goal, 8, 5);
+        assertEquals(6, PackedBoard.get(moved, 8));
+        assertEquals(5, packing.blank(moved));
+        assertEquals(goal, PackedBoard.slide(moved, 5, 8));
+    }
+
+    @Test
+    public void testMovesAreTheAdjacentCells() {
+        for (int size = 2; size <= PackedBoard.MAX_SIZE; size++) {
+            PackedBoard packing = new PackedBoard(size);
+            for (int blank = 0; blank < size * size; blank++) {
+                int adjacent = 0;
+                for (int from : packing.movesFrom(blank)) {
+                    int dx = Math.abs(from % size - blank % size), dy = Math.abs(from / size - blank / size);
+                    assertEquals(1, dx + dy);
+                    adjacent++;
+                }
+                int x = blank % size, y = blank / size;
+                int expected = (x > 0 ? 1 : 0) + (x < size - 1 ? 1 : 0) + (y > 0 ? 1 : 0) + (y < size - 1 ? 1 : 0);
+                assertEquals(expected, adjacent);
+            }
+        }
+    }
+
+    @Test
+    public void testSolvableExactlyWhenReachable() {
+        Random random = new Random(3);
+        for (int size = 2; size <= 3; size++) {
+            PackedBoard packing = new PackedBoard(size);
+            HashSet<Long> reachable = reachable(packing);
+            int cells = size * size;
+            // Half of all boards can be reached.
+            long all = 1;
+            for (int i = 2; i <= cells; i++) all *= i;
+            assertEquals(all / 2, reachable.size());
+            for (int n = 0; n < 2000; n++) {
+                long state = randomBoard(size, random);
+                assertEquals(reachable.contains(state), packing.isSolvable(state));
+            }
+        }
+    }
+}
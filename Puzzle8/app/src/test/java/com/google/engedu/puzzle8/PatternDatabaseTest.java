@@ -0,0 +1,125 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.puzzle8;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PatternDatabaseTest {
+
+    private static final int[][] PARTITION_3 = { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } };
+    private static final List<PatternDatabase> DATABASES_3 = PatternDatabase.build(3, PARTITION_3);
+    private static final DistanceTable TABLE = DistanceTable.build();
+
+    private static int[] cellOf(int[] board) {
+        int[] cellOf = new int[board.length];
+        for (int cell = 0; cell < board.length; cell++) cellOf[board[cell]] = cell;
+        return cellOf;
+    }
+
+    private static int[] goal(int size) {
+        int[] board = new int[size * size];
+        for (int cell = 0; cell < board.length - 1; cell++) board[cell] = cell + 1;
+        return board;
+    }
+
+    @Test
+    public void testGoalIsZero() {
+        for (PatternDatabase database : DATABASES_3) assertEquals(0, database.getDistance(cellOf(goal(3))));
+        assertEquals(0, new PatternDatabaseHeuristic(DATABASES_3).reset(goal(3)));
+        PatternDatabase small4 = PatternDatabase.build(4, PatternDatabase.PARTITION_4[2]);
+        assertEquals(0, small4.getDistance(cellOf(goal(4))));
+    }
+
+    @Test
+    public void testIndexIsPerfect() {
+        PatternDatabase database = PatternDatabase.build(3, new int[] { 2, 5, 7 });
+        assertEquals(9 * 8 * 7, database.getEntryCount());
+        boolean[] used = new boolean[database.getEntryCount()];
+        int[] cellOf = new int[9];
+        for (int a = 0; a < 9; a++) {
+            for (int b = 0; b < 9; b++) {
+                for (int c = 0; c < 9; c++) {
+                    if (a == b || b == c || a == c) continue;
+                    cellOf[2] = a;
+                    cellOf[5] = b;
+                    cellOf[7] = c;
+                    int index = database.index(cellOf);
+                    assertFalse(used[index]);
+                    used[index] = true;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAdditiveHeuristicIsAdmissible() {
+        PatternDatabaseHeuristic heuristic = new PatternDatabaseHeuristic(DATABASES_3);
+        IDAStarSolver solver = new IDAStarSolver(3, new PatternDatabaseHeuristic(DATABASES_3));
+        PackedBoard packing = new PackedBoard(3);
+        Random random = new Random(23);
+        for (int n = 0; n < 5000; n++) {
+            long state = PackedBoardTest.randomBoard(3, random);
+            if (!packing.isSolvable(state)) continue;
+            int[] board = IDAStarSolverTest.unpack(state, 3);
+            int distance = TABLE.getDistance(state);
+            assertTrue(heuristic.reset(board) <= distance);
+            if (n % 50 == 0) assertEquals(distance, solver.solve(board).length);
+        }
+    }
+
+    @Test
+    public void testWriteReadThroughOffset() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PatternDatabase.write(DATABASES_3, out);
+        File file = File.createTempFile("patterns", ".pdb");
+        try {
+            // An odd offset, like an asset at some position inside the APK.
+            FileOutputStream stream = new FileOutputStream(file);
+            stream.write(new byte[7]);
+            stream.write(out.toByteArray());
+            stream.write(new byte[5]);
+            stream.close();
+            FileInputStream in = new FileInputStream(file);
+            List<PatternDatabase> loaded = PatternDatabase.read(in.getChannel(), 7, out.size());
+            in.close();
+
+            assertEquals(DATABASES_3.size(), loaded.size());
+            Random random = new Random(29);
+            for (int d = 0; d < loaded.size(); d++) {
+                PatternDatabase expected = DATABASES_3.get(d), actual = loaded.get(d);
+                assertEquals(expected.getSize(), actual.getSize());
+                assertTrue(Arrays.equals(expected.getTiles(), actual.getTiles()));
+                assertEquals(expected.getEntryCount(), actual.getEntryCount());
+                for (int n = 0; n < 2000; n++) {
+                    int[] cellOf = cellOf(IDAStarSolverTest.unpack(PackedBoardTest.randomBoard(3, random), 3));
+                    assertEquals(expected.getDistance(cellOf), actual.getDistance(cellOf));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
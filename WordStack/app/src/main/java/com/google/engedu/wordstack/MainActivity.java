@@ -44,7 +44,12 @@ public class MainActivity extends AppCompatActivity {
     private Random random = new Random();
     private StackedLayout stackedLayout;
     private Stack<LetterTile> placedTiles;
-    private String word1, word2, madeWord1, madeWord2;
+    private String word1, word2;
+    private PrefixTrie trie;
+    private StackSolver solver;
+    private ArrayList<String[]> solutions = new ArrayList<>();
+    private StackPuzzleCatalog catalog;
+    private StackGame game;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -63,11 +68,19 @@ public class MainActivity extends AppCompatActivity {
             Toast toast = Toast.makeText(this, "Could not load dictionary", Toast.LENGTH_LONG);
             toast.show();
         }
+        try {
+            // Unique-solution stacks built offline by StackPuzzleGenerator.
+            StackPuzzleCatalog stacks = StackPuzzleCatalog.read(assetManager.open("stacks.bin"));
+            if (stacks.getWordLength() == WORD_LENGTH && stacks.size() > 0) catalog = stacks;
+        } catch (IOException e) {
+            catalog = null;
+        }
+        trie = new PrefixTrie(words);
+        solver = new StackSolver(trie, WORD_LENGTH);
         LinearLayout verticalLayout = (LinearLayout) findViewById(R.id.vertical_layout);
         stackedLayout = new StackedLayout(this);
         placedTiles = new Stack<>();
         verticalLayout.addView(stackedLayout, 3);
-        madeWord1 = ""; madeWord2 = "";
 
         View word1LinearLayout = findViewById(R.id.word1);
 //        word1LinearLayout.setOnTouchListener(new TouchListener());
@@ -84,6 +97,7 @@ public class MainActivity extends AppCompatActivity {
             if (event.getAction() == MotionEvent.ACTION_DOWN && !stackedLayout.empty()) {
                 LetterTile tile = (LetterTile) stackedLayout.peek();
                 tile.moveToViewGroup((ViewGroup) v);
+                onPlaced(v.getId() == R.id.word1 ? 0 : 1);
                 if (stackedLayout.empty()) {
                     TextView messageBox = (TextView) findViewById(R.id.message_box);
                     messageBox.setText(word1 + " " + word2);
@@ -119,14 +133,8 @@ public class MainActivity extends AppCompatActivity {
                 case DragEvent.ACTION_DROP:
                     // Dropped, reassign Tile to the target Layout
                     LetterTile tile = (LetterTile) event.getLocalState();
-                    if(v.getId() == R.id.word1) {
-                        madeWord1 += tile.getLetter();
-                        tile.moveToViewGroup((ViewGroup) v);
-                    }
-                    else {
-                        madeWord2 += tile.getLetter();
-                        tile.moveToViewGroup((ViewGroup) v);
-                    }
+                    tile.moveToViewGroup((ViewGroup) v);
+                    onPlaced(v.getId() == R.id.word1 ? 0 : 1);
                     if(stackedLayout.empty()) checkWin();
                     placedTiles.push(tile);
                     return true;
@@ -140,27 +148,24 @@ public class MainActivity extends AppCompatActivity {
         placedTiles.clear();
         ((ViewGroup) findViewById(R.id.word1)).removeAllViews();
         ((ViewGroup) findViewById(R.id.word2)).removeAllViews();
-        madeWord1 = ""; madeWord1 = "";
         TextView messageBox = (TextView) findViewById(R.id.message_box);
         messageBox.setText("Game started");
-        int idx1 = (int) (Math.random() * words.size());
-        int idx2 = (int) (Math.random() * words.size());
-        while(idx1 == idx2) idx2 = (int) (Math.random() * words.size());
-        word1 = words.get(idx1); word2 = words.get(idx2);
-
-        String jumbled = "";
-        int i=0, j=0,_;
-
-        while(i < word1.length() && j < word2.length()) {
-            _ = (int) (Math.random() * 50);
-            if(_ % 2 == 1) { jumbled += word1.charAt(i); i++; }
-            else { jumbled += word2.charAt(j); j++; }
+        if (catalog != null) {
+            int puzzle = catalog.draw(1, random);
+            word1 = catalog.getWord1(puzzle); word2 = catalog.getWord2(puzzle);
+            game = new StackGame(trie, new String[] { word1, word2 }, catalog.getJumble(puzzle).toCharArray());
+        } else {
+            int idx1 = random.nextInt(words.size());
+            int idx2 = random.nextInt(words.size());
+            while(idx1 == idx2) idx2 = random.nextInt(words.size());
+            word1 = words.get(idx1); word2 = words.get(idx2);
+            game = StackGame.deal(trie, new String[] { word1, word2 }, random);
         }
-        while(i < word1.length()) { jumbled += word1.charAt(i); i++; }
-        while(j < word2.length()) { jumbled += word2.charAt(j); j++; }
+        String jumbled = new String(game.getStack());
 
         messageBox.setText(jumbled);
-        for(i=jumbled.length()-1; i>=0; i--) {
+        solutions = solver.solve(jumbled);
+        for(int i=jumbled.length()-1; i>=0; i--) {
             LetterTile lt = new LetterTile(getApplicationContext(), jumbled.charAt(i));
             stackedLayout.push(lt);
         }
@@ -170,20 +175,43 @@ public class MainActivity extends AppCompatActivity {
 
     public boolean onUndo(View view) {
         if(!placedTiles.isEmpty()) {
-            if(((View)placedTiles.peek().getParent()).getId() == R.id.word1)
-                madeWord1 = new StringBuilder(madeWord1).deleteCharAt(madeWord1.length()-1).toString();
-            else
-                madeWord2 = new StringBuilder(madeWord2).deleteCharAt(madeWord2.length()-1).toString();
+            game.undo();
             placedTiles.pop().moveToViewGroup(stackedLayout);
         }
         return true;
     }
 
+    public boolean onHint(View view) {
+        TextView messageBox = (TextView) findViewById(R.id.message_box);
+        if (game == null || game.getRemaining() == 0) return false;
+        int slot = game.hint();
+        if (slot < 0) messageBox.setText("No way to finish from here, try undoing");
+        else messageBox.setText("Put '" + game.peek() + "' on word " + (slot + 1));
+        return true;
+    }
+
+    /**
+     * Advances the cursor of the word that just got a tile and reports
+     * straight away whether it can still become a word.
+     */
+    private void onPlaced(int slot) {
+        TextView messageBox = (TextView) findViewById(R.id.message_box);
+        boolean valid = game.place(slot);
+        String made = game.getWord(slot);
+        if (!valid) messageBox.setText("No word starts with " + made);
+        else if (game.isWord(slot)) messageBox.setText(made + " is a word");
+        else {
+            String next = game.getNextLetters(slot);
+            if (next.isEmpty()) messageBox.setText("No tile left continues " + made);
+            else messageBox.setText(made + " can continue with " + next);
+        }
+    }
+
     public void checkWin() {
         TextView messageBox = (TextView) findViewById(R.id.message_box);
-        if(word1.equals(madeWord1) && word2.equals(madeWord2)) messageBox.setText("You win! " + word1 + " " + word2);
-        else if(word1.equals(madeWord2) && word2.equals(madeWord1)) messageBox.setText("You win! " + word2 + " " + word1);
-        else if(words.contains(madeWord1) && words.contains(madeWord2)) messageBox.setText("You found alternative words! " + madeWord1+ " " + madeWord2);
-        else messageBox.setText("Try again");
+        String madeWord1 = game.getWord(0), madeWord2 = game.getWord(1);
+        if(game.isDealtSolution()) messageBox.setText("You win! " + madeWord1 + " " + madeWord2);
+        else if(game.isWon()) messageBox.setText("You found alternative words! " + madeWord1+ " " + madeWord2);
+        else messageBox.setText("Try again, this stack has " + solutions.size() + " solution(s)");
     }
 }
@@ -0,0 +1,138 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.wordstack;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Prefix trie stored in parallel int arrays.
+ *
+ * Node 0 is the root. Children are kept as a first-child / next-sibling
+ * list, so a node costs three ints and a char and walking a word needs no
+ * allocation. Callers hold node ids to extend a prefix one letter at a time.
+ */
+public class PrefixTrie {
+
+    public static final int ROOT = 0;
+    public static final int NONE = -1;
+
+    private char[] label = new char[64];
+    private int[] firstChild = new int[64];
+    private int[] nextSibling = new int[64];
+    private int[] depth = new int[64];
+    private final BitSet isWord = new BitSet();
+    private int nodeCount;
+    private int wordCount;
+
+    public PrefixTrie(Collection<String> words) {
+        newNode('\0', 0);
+        for (String word : words) add(word);
+    }
+
+    private void add(String word) {
+        int node = ROOT;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            int next = child(node, c);
+            if (next == NONE) {
+                next = newNode(c, i + 1);
+                nextSibling[next] = firstChild[node];
+                firstChild[node] = next;
+            }
+            node = next;
+        }
+        if (!isWord.get(node)) {
+            isWord.set(node);
+            wordCount++;
+        }
+    }
+
+    private int newNode(char c, int nodeDepth) {
+        if (nodeCount == label.length) {
+            int capacity = 2 * nodeCount;
+            label = Arrays.copyOf(label, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            depth = Arrays.copyOf(depth, capacity);
+        }
+        int node = nodeCount++;
+        label[node] = c;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        depth[node] = nodeDepth;
+        return node;
+    }
+
+    /**
+     * Returns the node reached from {@code node} by {@code c}, or NONE.
+     */
+    public int child(int node, char c) {
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            if (label[child] == c) return child;
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the node spelling {@code prefix}, or NONE.
+     */
+    public int find(String prefix) {
+        int node = ROOT;
+        for (int i = 0; i < prefix.length() && node != NONE; i++) node = child(node, prefix.charAt(i));
+        return node;
+    }
+
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    /**
+     * The letter on the edge into {@code node}.
+     */
+    public char label(int node) {
+        return label[node];
+    }
+
+    public boolean contains(String word) {
+        int node = find(word);
+        return node != NONE && isWord.get(node);
+    }
+
+    public boolean isWord(int node) {
+        return isWord.get(node);
+    }
+
+    /**
+     * Length of the prefix spelled by {@code node}.
+     */
+    public int depth(int node) {
+        return depth[node];
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+}
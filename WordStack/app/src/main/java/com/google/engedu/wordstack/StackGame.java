@@ -0,0 +1,209 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.wordstack;
+
+import java.util.Random;
+
+/**
+ * Headless WordStack game with any number of words of any lengths.
+ *
+ * The stack is a char[] read from index 0 (the top tile) down. Each tile is
+ * placed into one of the word slots, and every slot is a TrieCursor, so a
+ * placement is checked against the dictionary with a single child lookup
+ * and an undo just rolls one cursor back. A slot that has left the trie
+ * stays dead until enough tiles are taken back.
+ */
+public class StackGame {
+
+    private final String[] dealt;
+    private final char[] stack;
+    private int next;
+    // Placement history: the slot each taken tile went to.
+    private final int[] history;
+    private final TrieCursor[] slots;
+
+    /**
+     * Starts a game on {@code stack}, which was dealt from {@code dealt};
+     * there is one slot per dealt word.
+     */
+    public StackGame(PrefixTrie trie, String[] dealt, char[] stack) {
+        this.dealt = dealt;
+        this.stack = stack;
+        history = new int[stack.length];
+        slots = new TrieCursor[dealt.length];
+        for (int slot = 0; slot < slots.length; slot++) slots[slot] = new TrieCursor(trie);
+    }
+
+    /**
+     * Deals {@code words} into one stack, choosing each tile's word with
+     * probability proportional to its letters left, which makes every
+     * interleaving equally likely.
+     */
+    public static StackGame deal(PrefixTrie trie, String[] words, Random random) {
+        int total = 0;
+        for (String word : words) total += word.length();
+        char[] stack = new char[total];
+        int[] used = new int[words.length];
+        for (int k = 0; k < total; k++) {
+            int pick = random.nextInt(total - k);
+            int w = 0;
+            while (pick >= words[w].length() - used[w]) {
+                pick -= words[w].length() - used[w];
+                w++;
+            }
+            stack[k] = words[w].charAt(used[w]++);
+        }
+        return new StackGame(trie, words, stack);
+    }
+
+    public int getSlotCount() {
+        return dealt.length;
+    }
+
+    public String getDealtWord(int slot) {
+        return dealt[slot];
+    }
+
+    /**
+     * The whole stack, top tile first.
+     */
+    public char[] getStack() {
+        return stack;
+    }
+
+    public int getRemaining() {
+        return stack.length - next;
+    }
+
+    /**
+     * Returns the tile on top of the stack; the stack must not be empty.
+     */
+    public char peek() {
+        return stack[next];
+    }
+
+    /**
+     * Moves the top tile into {@code slot} and returns whether the slot
+     * still spells the start of a word.
+     */
+    public boolean place(int slot) {
+        if (next == stack.length) throw new IllegalStateException("Stack is empty");
+        history[next] = slot;
+        return slots[slot].advance(stack[next++]);
+    }
+
+    /**
+     * Puts the last placed tile back on the stack and returns the slot it
+     * came from, or -1 if nothing has been placed.
+     */
+    public int undo() {
+        if (next == 0) return -1;
+        int slot = history[--next];
+        slots[slot].rollback();
+        return slot;
+    }
+
+    public String getWord(int slot) {
+        return slots[slot].toString();
+    }
+
+    public TrieCursor getCursor(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * Returns the letters that can extend the word in {@code slot} and are
+     * on a tile still in the stack.
+     */
+    public String getNextLetters(int slot) {
+        return slots[slot].getNextLetters(new String(stack, next, stack.length - next));
+    }
+
+    public boolean isValidPrefix(int slot) {
+        return slots[slot].isValid();
+    }
+
+    public boolean isWord(int slot) {
+        return slots[slot].isWord();
+    }
+
+    /**
+     * Returns a slot for the top tile from which the rest of the stack can
+     * still be placed into words, or -1 if there is none (for instance
+     * because a slot is already dead and tiles need to be taken back).
+     *
+     * This is a depth-first search over the remaining tiles using the
+     * slots' own cursors, so only live prefixes are explored; empty slots
+     * are interchangeable, so only the first of them is tried.
+     */
+    public int hint() {
+        if (next == stack.length) return -1;
+        for (int slot = 0; slot < slots.length; slot++) {
+            if (isRedundant(slot)) continue;
+            boolean solvable = place(slot) && canFinish();
+            undo();
+            if (solvable) return slot;
+        }
+        return -1;
+    }
+
+    private boolean canFinish() {
+        if (next == stack.length) return isWon();
+        for (int slot = 0; slot < slots.length; slot++) {
+            if (isRedundant(slot)) continue;
+            boolean solvable = place(slot) && canFinish();
+            undo();
+            if (solvable) return true;
+        }
+        return false;
+    }
+
+    private boolean isRedundant(int slot) {
+        if (slots[slot].getLength() > 0) return false;
+        for (int earlier = 0; earlier < slot; earlier++) {
+            if (slots[earlier].getLength() == 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * True once every tile is placed and every slot holds a word, whether
+     * or not they are the words that were dealt.
+     */
+    public boolean isWon() {
+        if (next < stack.length) return false;
+        for (int slot = 0; slot < dealt.length; slot++) {
+            if (!isWord(slot)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * True if the slots hold exactly the dealt words, in any order.
+     */
+    public boolean isDealtSolution() {
+        if (!isWon()) return false;
+        boolean[] matched = new boolean[dealt.length];
+        for (int slot = 0; slot < dealt.length; slot++) {
+            String word = getWord(slot);
+            int w = 0;
+            while (w < dealt.length && (matched[w] || !dealt[w].equals(word))) w++;
+            if (w == dealt.length) return false;
+            matched[w] = true;
+        }
+        return true;
+    }
+}
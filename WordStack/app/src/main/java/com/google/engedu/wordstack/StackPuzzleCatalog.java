@@ -0,0 +1,162 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.wordstack;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Precomputed WordStack puzzles with a known number of solutions.
+ *
+ * A puzzle is two words and the interleaving mask that deals them into a
+ * stack: bit i is set when letter i of the stack comes from the first word.
+ * Records are fixed-size and sorted by solution count, so {@link #draw}
+ * picks a puzzle with at most a given number of solutions in constant time.
+ *
+ * File layout (big-endian): magic, version, word length, word count, the
+ * words as modified UTF-8, record count, then RECORD_BYTES per record: the
+ * two word indices and the mask (unsigned 16-bit each) and the solution
+ * count (byte).
+ */
+public class StackPuzzleCatalog {
+
+    private static final int MAGIC = 0x57535031; // "WSP1"
+    private static final int VERSION = 1;
+    static final int RECORD_BYTES = 7;
+    // Two word indices and the mask must each fit in an unsigned short.
+    static final int MAX_WORDS = 1 << 16;
+    static final int MAX_WORD_LENGTH = 8;
+    // The solution count is stored in one unsigned byte.
+    static final int MAX_SOLUTIONS = 255;
+
+    private final int wordLength;
+    private final String[] words;
+    private final byte[] records;
+    // Records with s solutions are solutionStart[s] to solutionStart[s + 1] - 1.
+    private final int[] solutionStart;
+
+    StackPuzzleCatalog(int wordLength, String[] words, byte[] records) {
+        this.wordLength = wordLength;
+        this.words = words;
+        this.records = records;
+        int maxSolutions = 0;
+        for (int i = 0; i < size(); i++) maxSolutions = Math.max(maxSolutions, getSolutionCount(i));
+        solutionStart = new int[maxSolutions + 2];
+        for (int i = 0; i < size(); i++) solutionStart[getSolutionCount(i) + 1]++;
+        for (int s = 0; s + 1 < solutionStart.length; s++) solutionStart[s + 1] += solutionStart[s];
+    }
+
+    /**
+     * Packs one record into {@code records} at index {@code i}.
+     */
+    static void putRecord(byte[] records, int i, int word1, int word2, int mask, int solutions) {
+        int at = i * RECORD_BYTES;
+        records[at] = (byte) (word1 >> 8);
+        records[at + 1] = (byte) word1;
+        records[at + 2] = (byte) (word2 >> 8);
+        records[at + 3] = (byte) word2;
+        records[at + 4] = (byte) (mask >> 8);
+        records[at + 5] = (byte) mask;
+        records[at + 6] = (byte) solutions;
+    }
+
+    private int getShort(int i, int field) {
+        int at = i * RECORD_BYTES + 2 * field;
+        return ((records[at] & 0xff) << 8) | (records[at + 1] & 0xff);
+    }
+
+    public int size() {
+        return records.length / RECORD_BYTES;
+    }
+
+    public int getWordLength() {
+        return wordLength;
+    }
+
+    public String getWord1(int i) {
+        return words[getShort(i, 0)];
+    }
+
+    public String getWord2(int i) {
+        return words[getShort(i, 1)];
+    }
+
+    public int getMask(int i) {
+        return getShort(i, 2);
+    }
+
+    public int getSolutionCount(int i) {
+        return records[i * RECORD_BYTES + 6] & 0xff;
+    }
+
+    /**
+     * Deals the two words of puzzle {@code i} into its stack, top first.
+     */
+    public String getJumble(int i) {
+        return interleave(getWord1(i), getWord2(i), getMask(i));
+    }
+
+    static String interleave(String word1, String word2, int mask) {
+        int length = word1.length() + word2.length();
+        char[] jumble = new char[length];
+        int a = 0, b = 0;
+        for (int k = 0; k < length; k++)
+            jumble[k] = (mask & (1 << k)) != 0 ? word1.charAt(a++) : word2.charAt(b++);
+        return new String(jumble);
+    }
+
+    /**
+     * Returns the index of a random puzzle with at most
+     * {@code maxSolutions} solutions, or -1 if there is none.
+     */
+    public int draw(int maxSolutions, Random random) {
+        maxSolutions = Math.min(maxSolutions, solutionStart.length - 2);
+        if (maxSolutions < 1) return -1;
+        int hi = solutionStart[maxSolutions + 1];
+        if (hi == 0) return -1;
+        return random.nextInt(hi);
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(wordLength);
+        out.writeInt(words.length);
+        for (String word : words) out.writeUTF(word);
+        out.writeInt(size());
+        out.write(records);
+        out.flush();
+    }
+
+    public static StackPuzzleCatalog read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            throw new IOException("Not a WordStack puzzle catalog");
+        int wordLength = in.readInt();
+        String[] words = new String[in.readInt()];
+        for (int i = 0; i < words.length; i++) words[i] = in.readUTF();
+        byte[] records = new byte[in.readInt() * RECORD_BYTES];
+        in.readFully(records);
+        return new StackPuzzleCatalog(wordLength, words, records);
+    }
+}
@@ -0,0 +1,201 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.wordstack;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Offline generator for {@link StackPuzzleCatalog}.
+ *
+ * Worker threads deal random word pairs with random interleavings, each
+ * with its own StackSolver over one shared trie, and keep the stacks that
+ * have between one and maxSolutions ways to split. Stacks that simply put
+ * one word on top of the other are skipped.
+ *
+ * Run from a desktop JVM with the app classes on the classpath:
+ *
+ *   java com.google.engedu.wordstack.StackPuzzleGenerator \
+ *       app/src/main/assets/words.txt app/src/main/assets/stacks.bin
+ */
+public class StackPuzzleGenerator {
+
+    private static final int BATCH = 4096;
+
+    private final String[] words;
+    private final int wordLength;
+    private final PrefixTrie trie;
+    private final int maxSolutions;
+    private final int threads;
+    private final long seed;
+    private long attempts;
+
+    /**
+     * @param words the dictionary; only words of {@code wordLength} letters are dealt
+     */
+    public StackPuzzleGenerator(List<String> words, int wordLength, int maxSolutions,
+                                int threads, long seed) {
+        if (wordLength > StackPuzzleCatalog.MAX_WORD_LENGTH)
+            throw new IllegalArgumentException("Words too long for a 16-bit mask: " + wordLength);
+        if (maxSolutions > StackPuzzleCatalog.MAX_SOLUTIONS)
+            throw new IllegalArgumentException("Too many solutions for an 8-bit count: " + maxSolutions);
+        TreeSet<String> dealt = new TreeSet<>();
+        for (String word : words) {
+            if (word.length() == wordLength) dealt.add(word);
+        }
+        if (dealt.size() > StackPuzzleCatalog.MAX_WORDS)
+            throw new IllegalArgumentException("Too many words for 16-bit indices: " + dealt.size());
+        this.words = dealt.toArray(new String[dealt.size()]);
+        this.wordLength = wordLength;
+        this.trie = new PrefixTrie(dealt);
+        this.maxSolutions = maxSolutions;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    /**
+     * Number of stacks dealt and solved by the last call to {@link #generate}.
+     */
+    public long getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Generates up to {@code count} distinct puzzles, giving up after
+     * {@code maxAttempts} stacks have been tried.
+     */
+    public StackPuzzleCatalog generate(int count, long maxAttempts) throws InterruptedException {
+        ArrayList<int[]> kept = new ArrayList<>();
+        HashSet<String> jumbles = new HashSet<>();
+        attempts = 0;
+        int round = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            while (kept.size() < count && attempts < maxAttempts) {
+                ArrayList<Future<int[][]>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final long batchSeed = seed + (long) round * threads + t;
+                    futures.add(executor.submit(new Callable<int[][]>() {
+                        @Override
+                        public int[][] call() {
+                            return batch(new Random(batchSeed));
+                        }
+                    }));
+                }
+                for (Future<int[][]> future : futures) {
+                    for (int[] puzzle : future.get()) {
+                        String jumble = StackPuzzleCatalog.interleave(words[puzzle[0]], words[puzzle[1]], puzzle[2]);
+                        if (kept.size() < count && jumbles.add(jumble)) kept.add(puzzle);
+                    }
+                }
+                attempts += (long) threads * BATCH;
+                round++;
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        // Counting sort by solution count, as the catalog expects.
+        int[] start = new int[maxSolutions + 2];
+        for (int[] puzzle : kept) start[puzzle[3] + 1]++;
+        for (int s = 0; s + 1 < start.length; s++) start[s + 1] += start[s];
+        byte[] records = new byte[kept.size() * StackPuzzleCatalog.RECORD_BYTES];
+        for (int[] puzzle : kept)
+            StackPuzzleCatalog.putRecord(records, start[puzzle[3]]++, puzzle[0], puzzle[1], puzzle[2], puzzle[3]);
+        return new StackPuzzleCatalog(wordLength, words, records);
+    }
+
+    /**
+     * Deals BATCH stacks and returns the accepted ones as
+     * {word1, word2, mask, solutions}.
+     */
+    private int[][] batch(Random random) {
+        StackSolver solver = new StackSolver(trie, wordLength);
+        int length = 2 * wordLength;
+        int separated = (1 << wordLength) - 1;
+        int[] positions = new int[length];
+        ArrayList<int[]> accepted = new ArrayList<>();
+        for (int n = 0; n < BATCH; n++) {
+            int word1 = random.nextInt(words.length);
+            int word2 = random.nextInt(words.length);
+            if (word1 == word2) continue;
+            // The first wordLength entries of a partial shuffle pick word1's letters.
+            for (int k = 0; k < length; k++) positions[k] = k;
+            int mask = 0;
+            for (int k = 0; k < wordLength; k++) {
+                int j = k + random.nextInt(length - k);
+                int tmp = positions[k];
+                positions[k] = positions[j];
+                positions[j] = tmp;
+                mask |= 1 << positions[k];
+            }
+            if (mask == separated || mask == separated << wordLength) continue;
+            String jumble = StackPuzzleCatalog.interleave(words[word1], words[word2], mask);
+            int solutions = solver.solve(jumble).size();
+            if (solutions >= 1 && solutions <= maxSolutions)
+                accepted.add(new int[] { word1, word2, mask, solutions });
+        }
+        return accepted.toArray(new int[accepted.size()][]);
+    }
+
+    /**
+     * Usage: StackPuzzleGenerator words.txt out.bin [count maxSolutions wordLength]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+        int maxSolutions = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        int wordLength = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+        // Fail before reading the dictionary rather than after.
+        if (maxSolutions > StackPuzzleCatalog.MAX_SOLUTIONS)
+            throw new IllegalArgumentException("maxSolutions must be at most "
+                    + StackPuzzleCatalog.MAX_SOLUTIONS + ": " + maxSolutions);
+        if (wordLength > StackPuzzleCatalog.MAX_WORD_LENGTH)
+            throw new IllegalArgumentException("wordLength must be at most "
+                    + StackPuzzleCatalog.MAX_WORD_LENGTH + ": " + wordLength);
+
+        ArrayList<String> words = new ArrayList<>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(args[0])));
+        String line;
+        while ((line = in.readLine()) != null) words.add(line.trim());
+        in.close();
+
+        long start = System.nanoTime();
+        StackPuzzleGenerator generator = new StackPuzzleGenerator(words, wordLength, maxSolutions,
+                Runtime.getRuntime().availableProcessors(), 42);
+        StackPuzzleCatalog catalog = generator.generate(count, 100L * count);
+        OutputStream out = new FileOutputStream(args[1]);
+        catalog.write(out);
+        out.close();
+        System.out.println(catalog.size() + " puzzles from " + generator.getAttempts() + " stacks in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
@@ -0,0 +1,115 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.wordstack;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Finds every way to split a jumbled stack back into two dictionary words.
+ *
+ * The jumble is an interleaving of the two words, so a split is fixed by
+ * which word each letter goes to. The search walks the stack once with one
+ * trie cursor per word; its state is (node1, node2), since the letters used
+ * so far are the sum of the two depths. A state dies as soon as either
+ * cursor leaves the trie or passes the word length, so only prefixes of
+ * real words are ever explored and a jumble of two five-letter words is
+ * solved in a few hundred steps. Memoizing dead states does not pay off at
+ * that size, so there is none.
+ *
+ * The first letter always goes to the first word, which rules out most
+ * swapped duplicates; the rest are dropped when a solution is recorded.
+ */
+public class StackSolver {
+
+    private final PrefixTrie trie;
+    private final int wordLength;
+    private final char[] first, second;
+    private String jumble;
+    private ArrayList<String[]> solutions;
+    private HashSet<String> seen;
+
+    public StackSolver(PrefixTrie trie, int wordLength) {
+        this.trie = trie;
+        this.wordLength = wordLength;
+        first = new char[wordLength];
+        second = new char[wordLength];
+    }
+
+    /**
+     * Returns every distinct pair {word1, word2} of dictionary words that
+     * interleave to {@code jumble}, with word1 owning the first letter.
+     */
+    public ArrayList<String[]> solve(String jumble) {
+        this.jumble = jumble;
+        solutions = new ArrayList<>();
+        seen = new HashSet<>();
+        if (jumble.length() == 2 * wordLength) {
+            int node = trie.child(PrefixTrie.ROOT, jumble.charAt(0));
+            if (node != PrefixTrie.NONE) {
+                first[0] = jumble.charAt(0);
+                search(node, PrefixTrie.ROOT);
+            }
+        }
+        ArrayList<String[]> result = solutions;
+        solutions = null;
+        seen = null;
+        return result;
+    }
+
+    /**
+     * Returns true if {@code word1} and {@code word2} are both words and
+     * interleave to {@code jumble}, in either order.
+     */
+    public boolean isSolution(String jumble, String word1, String word2) {
+        for (String[] pair : solve(jumble)) {
+            if ((pair[0].equals(word1) && pair[1].equals(word2))
+                    || (pair[0].equals(word2) && pair[1].equals(word1)))
+                return true;
+        }
+        return false;
+    }
+
+    private void search(int node1, int node2) {
+        int depth1 = trie.depth(node1), depth2 = trie.depth(node2);
+        int i = depth1 + depth2;
+        if (i == jumble.length()) {
+            if (trie.isWord(node1) && trie.isWord(node2)) {
+                String word1 = new String(first), word2 = new String(second);
+                // Repeated letters can yield the same pair by different routes,
+                // or swapped when both words start with the same letter.
+                String key = word1.compareTo(word2) <= 0 ? word1 + ' ' + word2 : word2 + ' ' + word1;
+                if (seen.add(key)) solutions.add(new String[] { word1, word2 });
+            }
+            return;
+        }
+        char c = jumble.charAt(i);
+        if (depth1 < wordLength) {
+            int next = trie.child(node1, c);
+            if (next != PrefixTrie.NONE) {
+                first[depth1] = c;
+                search(next, node2);
+            }
+        }
+        if (depth2 < wordLength) {
+            int next = trie.child(node2, c);
+            if (next != PrefixTrie.NONE) {
+                second[depth2] = c;
+                search(node1, next);
+            }
+        }
+    }
+}
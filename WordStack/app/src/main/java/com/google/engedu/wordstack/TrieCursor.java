@@ -0,0 +1,121 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.wordstack;
+
+import java.util.Arrays;
+
+/**
+ * Walks a PrefixTrie one letter at a time with undo.
+ *
+ * The cursor remembers the node for every prefix it has been through, so
+ * both {@link #advance} and {@link #rollback} are a single step. Once the
+ * letters stop matching any word the cursor is dead, and stays dead until
+ * it is rolled back past the first bad letter.
+ */
+public class TrieCursor {
+
+    private final PrefixTrie trie;
+    // nodes[d] is the node for the first d letters, or NONE.
+    private int[] nodes = new int[8];
+    private char[] letters = new char[8];
+    private int length;
+
+    public TrieCursor(PrefixTrie trie) {
+        this.trie = trie;
+        nodes[0] = PrefixTrie.ROOT;
+    }
+
+    /**
+     * Appends {@code c} and returns whether the letters still start a word.
+     */
+    public boolean advance(char c) {
+        if (length + 1 == nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+            letters = Arrays.copyOf(letters, 2 * letters.length);
+        }
+        int node = nodes[length];
+        letters[length++] = c;
+        nodes[length] = node == PrefixTrie.NONE ? PrefixTrie.NONE : trie.child(node, c);
+        return nodes[length] != PrefixTrie.NONE;
+    }
+
+    /**
+     * Drops the last letter; does nothing if there is none.
+     */
+    public void rollback() {
+        if (length > 0) length--;
+    }
+
+    public void reset() {
+        length = 0;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getNode() {
+        return nodes[length];
+    }
+
+    public boolean isValid() {
+        return nodes[length] != PrefixTrie.NONE;
+    }
+
+    public boolean isWord() {
+        return length > 0 && isValid() && trie.isWord(nodes[length]);
+    }
+
+    public boolean canAdvance(char c) {
+        return isValid() && trie.child(nodes[length], c) != PrefixTrie.NONE;
+    }
+
+    /**
+     * Returns the letters that can follow the current prefix, in trie
+     * order, or an empty string if the cursor is dead.
+     */
+    public String getNextLetters() {
+        StringBuilder next = new StringBuilder();
+        if (!isValid()) return "";
+        for (int c = trie.firstChild(nodes[length]); c != PrefixTrie.NONE; c = trie.nextSibling(c))
+            next.append(trie.label(c));
+        return next.toString();
+    }
+
+    /**
+     * Same as {@link #getNextLetters()}, but keeps only the letters that
+     * occur in {@code available}, such as the tiles still to be placed.
+     */
+    public String getNextLetters(CharSequence available) {
+        StringBuilder next = new StringBuilder();
+        if (!isValid()) return "";
+        for (int c = trie.firstChild(nodes[length]); c != PrefixTrie.NONE; c = trie.nextSibling(c)) {
+            char label = trie.label(c);
+            for (int i = 0; i < available.length(); i++) {
+                if (available.charAt(i) == label) {
+                    next.append(label);
+                    break;
+                }
+            }
+        }
+        return next.toString();
+    }
+
+    @Override
+    public String toString() {
+        return new String(letters, 0, length);
+    }
+}
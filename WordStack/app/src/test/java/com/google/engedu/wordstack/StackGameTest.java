@@ -0,0 +1,160 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.wordstack;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StackGameTest {
+
+    private static final PrefixTrie TRIE = new PrefixTrie(Arrays.asList(
+            "cat", "dog", "bird", "horse", "at", "to"));
+
+    @Test
+    public void testDealKeepsEveryWordInOrder() {
+        String[] words = { "cat", "horse", "bird", "to" };
+        Random random = new Random(5);
+        for (int n = 0; n < 100; n++) {
+            char[] stack = StackGame.deal(TRIE, words, random).getStack();
+            assertEquals(14, stack.length);
+            // Each word is a subsequence of the stack.
+            for (String word : words) {
+                int k = 0;
+                for (char c : stack) if (k < word.length() && word.charAt(k) == c) k++;
+                assertEquals(word.length(), k);
+            }
+        }
+    }
+
+    @Test
+    public void testPlacementChecksPrefixes() {
+        StackGame game = new StackGame(TRIE, new String[] { "cat", "dog", "at" }, "cdaogtat".toCharArray());
+        assertTrue(game.place(0));
+        assertTrue(game.place(1));
+        // "dog" is the only d-word, so "da" is dead.
+        assertFalse(game.place(1));
+        assertFalse(game.isValidPrefix(1));
+        assertEquals(1, game.undo());
+        assertEquals("d", game.getWord(1));
+        assertTrue(game.isValidPrefix(1));
+        assertEquals('a', game.peek());
+    }
+
+    @Test
+    public void testWinWithThreeWords() {
+        StackGame game = new StackGame(TRIE, new String[] { "cat", "dog", "at" }, "cdaogtat".toCharArray());
+        int[] slots = { 0, 1, 0, 1, 1, 0, 2, 2 };
+        for (int slot : slots) assertTrue(game.place(slot));
+        assertEquals(0, game.getRemaining());
+        assertTrue(game.isWon());
+        assertTrue(game.isDealtSolution());
+
+        // Sending the "a" to the second slot kills it.
+        game.undo();
+        game.undo();
+        assertFalse(game.isWon());
+        assertFalse(game.place(1));
+        game.place(2);
+        assertFalse(game.isWon());
+        assertEquals("doga", game.getWord(1));
+    }
+
+    @Test
+    public void testTwoLetterWords() {
+        StackGame game = new StackGame(TRIE, new String[] { "to", "at" }, "taot".toCharArray());
+        game.place(0);
+        game.place(1);
+        game.place(0);
+        game.place(1);
+        assertEquals("to", game.getWord(0));
+        assertEquals("at", game.getWord(1));
+        assertTrue(game.isDealtSolution());
+        assertEquals(-1, new StackGame(TRIE, new String[] { "at" }, "at".toCharArray()).undo());
+    }
+
+    @Test
+    public void testCursorAdvancesAndRollsBack() {
+        TrieCursor cursor = new TrieCursor(TRIE);
+        assertEquals("abcdht", sorted(cursor.getNextLetters()));
+        assertTrue(cursor.advance('h'));
+        assertTrue(cursor.advance('o'));
+        assertEquals("r", cursor.getNextLetters());
+        assertTrue(cursor.canAdvance('r'));
+        assertFalse(cursor.canAdvance('x'));
+        assertFalse(cursor.advance('x'));
+        assertFalse(cursor.advance('y'));
+        assertEquals("", cursor.getNextLetters());
+        assertEquals("hoxy", cursor.toString());
+        cursor.rollback();
+        cursor.rollback();
+        assertTrue(cursor.isValid());
+        assertFalse(cursor.isWord());
+        for (char c : "rse".toCharArray()) cursor.advance(c);
+        assertTrue(cursor.isWord());
+        assertEquals("horse", cursor.toString());
+    }
+
+    @Test
+    public void testNextLettersComeFromRemainingTiles() {
+        StackGame game = new StackGame(TRIE, new String[] { "cat", "bird" }, "cbaitrd".toCharArray());
+        assertEquals("abcdht", sorted(game.getCursor(0).getNextLetters()));
+        // No tile is an 'h', so "horse" is not offered.
+        assertEquals("abcdt", sorted(game.getNextLetters(0)));
+        game.place(0);
+        // "c" can only become "cat", and the 'a' is still in the stack.
+        assertEquals("a", game.getNextLetters(0));
+        game.place(1);
+        game.place(0);
+        game.place(1);
+        // "bi" continues with 'r', which is still to come.
+        assertEquals("r", game.getNextLetters(1));
+        assertEquals("t", game.getNextLetters(0));
+        game.place(0);
+        assertEquals("", game.getNextLetters(0));
+        assertEquals("r", game.getNextLetters(1));
+    }
+
+    @Test
+    public void testHintLeadsToAWin() {
+        Random random = new Random(11);
+        for (int n = 0; n < 50; n++) {
+            StackGame game = StackGame.deal(TRIE, new String[] { "horse", "bird", "cat" }, random);
+            while (game.getRemaining() > 0) {
+                int slot = game.hint();
+                assertTrue(slot >= 0);
+                assertTrue(game.place(slot));
+            }
+            assertTrue(game.isWon());
+        }
+
+        StackGame stuck = new StackGame(TRIE, new String[] { "cat", "dog" }, "cdaotg".toCharArray());
+        stuck.place(0);
+        stuck.place(0);
+        assertEquals(-1, stuck.hint());
+        stuck.undo();
+        assertEquals(1, stuck.hint());
+    }
+
+    private static String sorted(String letters) {
+        char[] chars = letters.toCharArray();
+        Arrays.sort(chars);
+        return new String(chars);
+    }
+}
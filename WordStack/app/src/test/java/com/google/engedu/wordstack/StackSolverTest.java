@@ -0,0 +1,121 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.wordstack;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StackSolverTest {
+
+    private static final PrefixTrie TRIE = new PrefixTrie(Arrays.asList(
+            "apple", "berry", "melon", "lemon", "apples"));
+
+    @Test
+    public void testTrie() {
+        assertTrue(TRIE.contains("apple"));
+        assertTrue(TRIE.contains("apples"));
+        assertFalse(TRIE.contains("appl"));
+        assertFalse(TRIE.contains("grape"));
+        assertEquals(3, TRIE.depth(TRIE.find("app")));
+        assertEquals(PrefixTrie.NONE, TRIE.find("xyz"));
+        assertEquals(5, TRIE.getWordCount());
+    }
+
+    @Test
+    public void testFindsTheDealtPair() {
+        StackSolver solver = new StackSolver(TRIE, 5);
+        ArrayList<String[]> solutions = solver.solve("abpeprlrey");
+        assertEquals(1, solutions.size());
+        assertArrayEquals(new String[] { "apple", "berry" }, solutions.get(0));
+        assertTrue(solver.isSolution("abpeprlrey", "berry", "apple"));
+        assertFalse(solver.isSolution("abpeprlrey", "apple", "melon"));
+
+        // Two identical halves can be split in many ways but count once.
+        assertEquals(1, solver.solve("aappppllee").size());
+    }
+
+    @Test
+    public void testFindsAlternativePairs() {
+        StackSolver solver = new StackSolver(new PrefixTrie(Arrays.asList(
+                "slate", "stale", "steal", "least", "tales")), 5);
+        // "slate" and "stale" interleaved; "slate" + "steal" fits as well.
+        ArrayList<String[]> solutions = solver.solve("slastetale");
+        assertEquals(2, solutions.size());
+        assertTrue(solver.isSolution("slastetale", "stale", "slate"));
+        assertTrue(solver.isSolution("slastetale", "slate", "steal"));
+
+        // Both words start with 's', so the swapped split must not count again.
+        assertEquals(1, solver.solve("sstlaaltee").size());
+    }
+
+    @Test
+    public void testRejectsWrongLength() {
+        StackSolver solver = new StackSolver(TRIE, 5);
+        assertTrue(solver.solve("applebe").isEmpty());
+        assertTrue(solver.solve("").isEmpty());
+    }
+
+    @Test
+    public void testGeneratedCatalog() throws Exception {
+        List<String> words = Arrays.asList("slate", "stale", "steal", "least", "tales",
+                "apple", "berry", "melon", "lemon", "peach", "cheap", "grape");
+        StackPuzzleGenerator generator = new StackPuzzleGenerator(words, 5, 2, 2, 7);
+        StackPuzzleCatalog catalog = generator.generate(200, 100000);
+        assertTrue(catalog.size() > 0);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        catalog.write(out);
+        StackPuzzleCatalog loaded = StackPuzzleCatalog.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(catalog.size(), loaded.size());
+
+        StackSolver solver = new StackSolver(new PrefixTrie(words), 5);
+        int previous = 1;
+        for (int i = 0; i < loaded.size(); i++) {
+            String jumble = loaded.getJumble(i);
+            assertEquals(loaded.getSolutionCount(i), solver.solve(jumble).size());
+            assertTrue(solver.isSolution(jumble, loaded.getWord1(i), loaded.getWord2(i)));
+            // Sorted by solution count.
+            assertTrue(loaded.getSolutionCount(i) >= previous);
+            previous = loaded.getSolutionCount(i);
+        }
+        int unique = loaded.draw(1, new Random(1));
+        assertTrue(unique < 0 || loaded.getSolutionCount(unique) == 1);
+    }
+
+    @Test
+    public void testGeneratorLimits() {
+        List<String> words = Arrays.asList("slate", "stale");
+        new StackPuzzleGenerator(words, 5, StackPuzzleCatalog.MAX_SOLUTIONS, 1, 7);
+        try {
+            new StackPuzzleGenerator(words, 5, StackPuzzleCatalog.MAX_SOLUTIONS + 1, 1, 7);
+            fail("Solution count that does not fit a byte accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new StackPuzzleGenerator(words, StackPuzzleCatalog.MAX_WORD_LENGTH + 1, 1, 1, 7);
+            fail("Word length that does not fit the mask accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
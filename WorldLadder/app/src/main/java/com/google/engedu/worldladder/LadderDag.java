@@ -0,0 +1,150 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.worldladder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Every shortest ladder between two words, as a layered DAG.
+ *
+ * Layer i holds the word ids at distance i from the start that still lie on
+ * some shortest ladder to the end, and edges only join consecutive layers.
+ * Nodes are stored layer by layer with CSR successor lists, so the DAG is
+ * linear in its size even when the number of ladders is exponential;
+ * ladders are only materialized one at a time by {@link #iterator()}.
+ */
+public class LadderDag implements Iterable<ArrayList<String>> {
+
+    private final WordGraph graph;
+    private final int[] nodes;
+    private final int[] layerStart;
+    private final int[] edgeStart;
+    private final int[] edgeTarget;
+    private final long pathCount;
+
+    /**
+     * @param nodes word ids ordered by layer
+     * @param layerStart layer i is nodes[layerStart[i], layerStart[i + 1])
+     * @param edgeStart successors of node k are edgeTarget[edgeStart[k], edgeStart[k + 1])
+     * @param edgeTarget successor positions in {@code nodes}
+     */
+    LadderDag(WordGraph graph, int[] nodes, int[] layerStart, int[] edgeStart, int[] edgeTarget) {
+        this.graph = graph;
+        this.nodes = nodes;
+        this.layerStart = layerStart;
+        this.edgeStart = edgeStart;
+        this.edgeTarget = edgeTarget;
+
+        long[] counts = new long[nodes.length];
+        counts[nodes.length - 1] = 1;
+        for (int k = nodes.length - 2; k >= 0; k--) {
+            long count = 0;
+            for (int e = edgeStart[k]; e < edgeStart[k + 1]; e++) {
+                count += counts[edgeTarget[e]];
+                if (count < 0) count = Long.MAX_VALUE;
+            }
+            counts[k] = count;
+        }
+        pathCount = counts[0];
+    }
+
+    /**
+     * Number of steps in each ladder.
+     */
+    public int getLength() {
+        return layerStart.length - 2;
+    }
+
+    /**
+     * Number of distinct shortest ladders, saturating at Long.MAX_VALUE.
+     */
+    public long getPathCount() {
+        return pathCount;
+    }
+
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeTarget.length;
+    }
+
+    /**
+     * Word ids that can appear at position {@code i} of a shortest ladder.
+     */
+    public int[] getLayer(int i) {
+        int[] layer = new int[layerStart[i + 1] - layerStart[i]];
+        System.arraycopy(nodes, layerStart[i], layer, 0, layer.length);
+        return layer;
+    }
+
+    public ArrayList<String> getLayerWords(int i) {
+        ArrayList<String> words = new ArrayList<>(layerStart[i + 1] - layerStart[i]);
+        for (int k = layerStart[i]; k < layerStart[i + 1]; k++) words.add(graph.word(nodes[k]));
+        return words;
+    }
+
+    /**
+     * Enumerates the ladders depth first, holding only the current one.
+     */
+    @Override
+    public Iterator<ArrayList<String>> iterator() {
+        return new Iterator<ArrayList<String>>() {
+            private final int length = getLength();
+            // node[i] is the position of the i-th word, edge[i] the edge taken from it.
+            private final int[] node = new int[length + 1];
+            private final int[] edge = new int[length + 1];
+            private boolean hasNext = descend(0);
+
+            private boolean descend(int from) {
+                for (int i = from; i < length; i++) {
+                    edge[i] = edgeStart[node[i]];
+                    node[i + 1] = edgeTarget[edge[i]];
+                }
+                return true;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return hasNext;
+            }
+
+            @Override
+            public ArrayList<String> next() {
+                if (!hasNext) throw new NoSuchElementException();
+                ArrayList<String> path = new ArrayList<>(length + 1);
+                for (int i = 0; i <= length; i++) path.add(graph.word(nodes[node[i]]));
+                hasNext = false;
+                for (int i = length - 1; i >= 0; i--) {
+                    if (edge[i] + 1 < edgeStart[node[i] + 1]) {
+                        node[i + 1] = edgeTarget[++edge[i]];
+                        hasNext = descend(i + 1);
+                        break;
+                    }
+                }
+                return path;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,138 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.worldladder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Precomputed word-ladder puzzles ranked by difficulty.
+ *
+ * Entries are sorted by ladder length (in steps) and then by branching, the
+ * average number of neighbours a player sees along the ladder. A table of
+ * where each length starts lets {@link #draw} pick a puzzle of a given
+ * difficulty in constant time.
+ *
+ * File layout (big-endian): magic, version, word count, the words as
+ * modified UTF-8, entry count, then per entry the start and end word
+ * indices (int), the steps (byte) and the branching times 100 (short).
+ */
+public class LadderPuzzleCatalog {
+
+    private static final int MAGIC = 0x4c504331; // "LPC1"
+    private static final int VERSION = 1;
+
+    private final String[] words;
+    private final int[] starts;
+    private final int[] ends;
+    private final byte[] steps;
+    private final short[] branching;
+    // Entries with s steps are stepStart[s] to stepStart[s + 1] - 1.
+    private final int[] stepStart;
+
+    LadderPuzzleCatalog(String[] words, int[] starts, int[] ends, byte[] steps, short[] branching) {
+        this.words = words;
+        this.starts = starts;
+        this.ends = ends;
+        this.steps = steps;
+        this.branching = branching;
+        int maxSteps = 0;
+        for (byte s : steps) maxSteps = Math.max(maxSteps, s);
+        stepStart = new int[maxSteps + 2];
+        for (byte s : steps) stepStart[s + 1]++;
+        for (int s = 0; s + 1 < stepStart.length; s++) stepStart[s + 1] += stepStart[s];
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public int getMaxSteps() {
+        return stepStart.length - 2;
+    }
+
+    public String getStart(int i) {
+        return words[starts[i]];
+    }
+
+    public String getEnd(int i) {
+        return words[ends[i]];
+    }
+
+    public int getSteps(int i) {
+        return steps[i];
+    }
+
+    public float getBranching(int i) {
+        return branching[i] / 100f;
+    }
+
+    /**
+     * Returns the index of a random puzzle whose ladder takes between
+     * minSteps and maxSteps steps, or -1 if there is none.
+     */
+    public int draw(int minSteps, int maxSteps, Random random) {
+        minSteps = Math.max(minSteps, 0);
+        maxSteps = Math.min(maxSteps, getMaxSteps());
+        if (minSteps > maxSteps) return -1;
+        int lo = stepStart[minSteps];
+        int hi = stepStart[maxSteps + 1];
+        if (lo == hi) return -1;
+        return lo + random.nextInt(hi - lo);
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(words.length);
+        for (String word : words) out.writeUTF(word);
+        out.writeInt(starts.length);
+        for (int i = 0; i < starts.length; i++) {
+            out.writeInt(starts[i]);
+            out.writeInt(ends[i]);
+            out.writeByte(steps[i]);
+            out.writeShort(branching[i]);
+        }
+        out.flush();
+    }
+
+    public static LadderPuzzleCatalog read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            throw new IOException("Not a ladder puzzle catalog");
+        String[] words = new String[in.readInt()];
+        for (int i = 0; i < words.length; i++) words[i] = in.readUTF();
+        int count = in.readInt();
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        byte[] steps = new byte[count];
+        short[] branching = new short[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = in.readInt();
+            ends[i] = in.readInt();
+            steps[i] = in.readByte();
+            branching[i] = in.readShort();
+        }
+        return new LadderPuzzleCatalog(words, starts, ends, steps, branching);
+    }
+}
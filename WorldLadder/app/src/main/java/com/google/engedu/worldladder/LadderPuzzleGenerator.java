@@ -0,0 +1,307 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.worldladder;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Offline generator for {@link LadderPuzzleCatalog}.
+ *
+ * For every word-length graph it runs a full BFS from a sample of source
+ * words in parallel. Each BFS yields the source's eccentricity, adds to the
+ * distance distribution, and contributes a few (start, end) puzzles at
+ * every distance, rated by the average branching along the ladder.
+ *
+ * Run from a desktop JVM with the app classes on the classpath:
+ *
+ *   java com.google.engedu.worldladder.LadderPuzzleGenerator \
+ *       app/src/main/assets/words.txt app/src/main/assets/ladders.bin
+ */
+public class LadderPuzzleGenerator {
+
+    private static final int MIN_STEPS = 2;
+    private static final int MAX_STEPS = Byte.MAX_VALUE;
+
+    private final int samples;
+    private final int puzzlesPerDistance;
+    private final int minComponentSize;
+    private final int threads;
+    private final long seed;
+    private final LinkedHashMap<String, Integer> eccentricities = new LinkedHashMap<>();
+    private long[] distanceHistogram = new long[0];
+
+    /**
+     * @param samples source words sampled per graph
+     * @param puzzlesPerDistance puzzles kept per source and ladder length
+     * @param minComponentSize sources are drawn from components at least this big
+     */
+    public LadderPuzzleGenerator(int samples, int puzzlesPerDistance, int minComponentSize,
+                                 int threads, long seed) {
+        this.samples = samples;
+        this.puzzlesPerDistance = puzzlesPerDistance;
+        this.minComponentSize = minComponentSize;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    /**
+     * Eccentricity (longest shortest ladder) of every sampled source word.
+     */
+    public Map<String, Integer> getEccentricities() {
+        return eccentricities;
+    }
+
+    /**
+     * Number of sampled (source, word) pairs at each ladder distance.
+     */
+    public long[] getDistanceHistogram() {
+        return distanceHistogram;
+    }
+
+    private static class SourceResult {
+        int source;
+        int eccentricity;
+        long[] histogram;
+        int count;
+        int[] targets;
+        byte[] steps;
+        short[] branching;
+    }
+
+    private static class Scratch {
+        final int[] dist, parent, queue;
+
+        Scratch(int n) {
+            dist = new int[n];
+            parent = new int[n];
+            queue = new int[n];
+        }
+    }
+
+    public LadderPuzzleCatalog generate(List<WordGraph> graphs) throws InterruptedException {
+        ArrayList<String> words = new ArrayList<>();
+        HashMap<String, Integer> wordIds = new HashMap<>();
+        int[] starts = new int[0], ends = new int[0];
+        byte[] steps = new byte[0];
+        short[] branching = new short[0];
+        int count = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (WordGraph graph : graphs) {
+                for (SourceResult result : explore(graph, executor)) {
+                    eccentricities.put(graph.word(result.source), result.eccentricity);
+                    if (result.histogram.length > distanceHistogram.length)
+                        distanceHistogram = Arrays.copyOf(distanceHistogram, result.histogram.length);
+                    for (int d = 0; d < result.histogram.length; d++) distanceHistogram[d] += result.histogram[d];
+
+                    if (count + result.count > starts.length) {
+                        int capacity = Math.max(2 * starts.length, count + result.count);
+                        starts = Arrays.copyOf(starts, capacity);
+                        ends = Arrays.copyOf(ends, capacity);
+                        steps = Arrays.copyOf(steps, capacity);
+                        branching = Arrays.copyOf(branching, capacity);
+                    }
+                    int start = intern(graph.word(result.source), words, wordIds);
+                    for (int i = 0; i < result.count; i++) {
+                        starts[count] = start;
+                        ends[count] = intern(graph.word(result.targets[i]), words, wordIds);
+                        steps[count] = result.steps[i];
+                        branching[count] = result.branching[i];
+                        count++;
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Rank by steps, then branching; the low bits keep the entry index.
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++)
+            order[i] = ((long) steps[i] << 48) | ((long) branching[i] << 32) | i;
+        Arrays.sort(order);
+        int[] sortedStarts = new int[count], sortedEnds = new int[count];
+        byte[] sortedSteps = new byte[count];
+        short[] sortedBranching = new short[count];
+        for (int i = 0; i < count; i++) {
+            int j = (int) order[i];
+            sortedStarts[i] = starts[j];
+            sortedEnds[i] = ends[j];
+            sortedSteps[i] = steps[j];
+            sortedBranching[i] = branching[j];
+        }
+        return new LadderPuzzleCatalog(words.toArray(new String[words.size()]),
+                sortedStarts, sortedEnds, sortedSteps, sortedBranching);
+    }
+
+    private List<SourceResult> explore(final WordGraph graph, ExecutorService executor)
+            throws InterruptedException {
+        Random random = new Random(seed ^ graph.size());
+        int[] candidates = new int[graph.size()];
+        int n = 0;
+        for (int v = 0; v < graph.size(); v++) {
+            if (graph.componentSize(v) >= minComponentSize) candidates[n++] = v;
+        }
+        // Partial Fisher-Yates shuffle picks the sample.
+        int sampleCount = Math.min(samples, n);
+        for (int i = 0; i < sampleCount; i++) {
+            int j = i + random.nextInt(n - i);
+            int tmp = candidates[i];
+            candidates[i] = candidates[j];
+            candidates[j] = tmp;
+        }
+
+        final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+            @Override
+            protected Scratch initialValue() {
+                return new Scratch(graph.size());
+            }
+        };
+        ArrayList<Future<SourceResult>> futures = new ArrayList<>();
+        for (int i = 0; i < sampleCount; i++) {
+            final int source = candidates[i];
+            futures.add(executor.submit(new Callable<SourceResult>() {
+                @Override
+                public SourceResult call() {
+                    return explore(graph, source, scratch.get());
+                }
+            }));
+        }
+        ArrayList<SourceResult> results = new ArrayList<>();
+        try {
+            for (Future<SourceResult> future : futures) results.add(future.get());
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return results;
+    }
+
+    private SourceResult explore(WordGraph graph, int source, Scratch scratch) {
+        int[] dist = scratch.dist, parent = scratch.parent, queue = scratch.queue;
+        Arrays.fill(dist, -1);
+        int head = 0, tail = 0;
+        dist[source] = 0;
+        parent[source] = -1;
+        queue[tail++] = source;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int e = graph.offsets.get(v); e < graph.offsets.get(v + 1); e++) {
+                int w = graph.targets.get(e);
+                if (dist[w] >= 0) continue;
+                dist[w] = dist[v] + 1;
+                parent[w] = v;
+                queue[tail++] = w;
+            }
+        }
+
+        SourceResult result = new SourceResult();
+        result.source = source;
+        result.eccentricity = dist[queue[tail - 1]];
+        result.histogram = new long[result.eccentricity + 1];
+        for (int i = 0; i < tail; i++) result.histogram[dist[queue[i]]]++;
+
+        // The BFS queue is ordered by distance, so each distance is a
+        // contiguous run to sample from, without replacement, by a partial
+        // Fisher-Yates shuffle of the run. Nothing reads the queue after this.
+        Random random = new Random(seed ^ ((long) source << 20) ^ graph.size());
+        int capacity = puzzlesPerDistance * Math.max(0, Math.min(result.eccentricity, MAX_STEPS) - MIN_STEPS + 1);
+        result.targets = new int[capacity];
+        result.steps = new byte[capacity];
+        result.branching = new short[capacity];
+        int runStart = 0;
+        while (runStart < tail) {
+            int d = dist[queue[runStart]];
+            int runEnd = runStart;
+            while (runEnd < tail && dist[queue[runEnd]] == d) runEnd++;
+            if (d >= MIN_STEPS && d <= MAX_STEPS) {
+                for (int k = 0; k < puzzlesPerDistance && k < runEnd - runStart; k++) {
+                    int pick = runStart + k + random.nextInt(runEnd - runStart - k);
+                    int target = queue[pick];
+                    queue[pick] = queue[runStart + k];
+                    queue[runStart + k] = target;
+                    int degrees = 0;
+                    for (int v = parent[target]; v != -1; v = parent[v]) degrees += graph.degree(v);
+                    result.targets[result.count] = target;
+                    result.steps[result.count] = (byte) d;
+                    result.branching[result.count] = (short) Math.min(Short.MAX_VALUE, 100 * degrees / d);
+                    result.count++;
+                }
+            }
+            runStart = runEnd;
+        }
+        return result;
+    }
+
+    private static int intern(String word, ArrayList<String> words, HashMap<String, Integer> ids) {
+        Integer id = ids.get(word);
+        if (id == null) {
+            id = words.size();
+            words.add(word);
+            ids.put(word, id);
+        }
+        return id;
+    }
+
+    /**
+     * Usage: LadderPuzzleGenerator words.txt out.bin [minLength maxLength samples]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int minLength = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int maxLength = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        int samples = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+
+        ArrayList<ArrayList<String>> byLength = new ArrayList<>();
+        for (int length = 0; length <= maxLength; length++) byLength.add(new ArrayList<String>());
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(args[0])));
+        String line;
+        while ((line = in.readLine()) != null) {
+            String word = line.trim();
+            if (word.length() >= minLength && word.length() <= maxLength) byLength.get(word.length()).add(word);
+        }
+        in.close();
+        ArrayList<WordGraph> graphs = new ArrayList<>();
+        for (int length = minLength; length <= maxLength; length++) graphs.add(WordGraph.build(byLength.get(length)));
+
+        LadderPuzzleGenerator generator = new LadderPuzzleGenerator(samples, 2, 50,
+                Runtime.getRuntime().availableProcessors(), 42);
+        LadderPuzzleCatalog catalog = generator.generate(graphs);
+        OutputStream out = new FileOutputStream(args[1]);
+        catalog.write(out);
+        out.close();
+
+        System.out.println(catalog.size() + " puzzles, up to " + catalog.getMaxSteps() + " steps");
+        long[] histogram = generator.getDistanceHistogram();
+        for (int d = 1; d < histogram.length; d++) System.out.println("distance " + d + ": " + histogram[d]);
+    }
+}
@@ -0,0 +1,390 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.worldladder;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Reusable scratch space for ladder searches over one WordGraph.
+ *
+ * All per-node state lives in int arrays sized to the graph and is
+ * invalidated by bumping a generation stamp, so a search allocates nothing
+ * but its result. An instance must only be used by one thread at a time.
+ */
+public class LadderSearch {
+
+    private final WordGraph graph;
+    private final LandmarkIndex landmarks;
+    private int generation;
+    private final int[] fwdMark, bwdMark;
+    private final int[] fwdParent, bwdParent;
+    private final int[] fwdDist, bwdDist;
+    private final int[] fwdQueue, bwdQueue;
+    // Layer membership and position while building a LadderDag.
+    private final int[] dagMark, dagIndex;
+    private int meetNode, meetLevelStart, meetLevelEnd;
+    private boolean meetForward;
+    // A* open list: one linked list of entries per f value.
+    private final int[] bucketHead, bucketMark;
+    private int[] entryNode = new int[64], entryG = new int[64], entryNext = new int[64];
+    private int expanded;
+
+    public LadderSearch(WordGraph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Creates a search whose A* heuristic is also bounded from below by the
+     * given landmark distances.
+     */
+    public LadderSearch(WordGraph graph, LandmarkIndex landmarks) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        int n = graph.size();
+        fwdMark = new int[n];
+        bwdMark = new int[n];
+        fwdParent = new int[n];
+        bwdParent = new int[n];
+        fwdDist = new int[n];
+        bwdDist = new int[n];
+        fwdQueue = new int[n];
+        bwdQueue = new int[n];
+        dagMark = new int[n];
+        dagIndex = new int[n];
+        int maxLength = 0;
+        for (int v = 0; v < n; v++) maxLength = Math.max(maxLength, graph.length(v));
+        // f = g + h never exceeds the number of nodes plus the word length.
+        bucketHead = new int[n + maxLength + 1];
+        bucketMark = new int[n + maxLength + 1];
+    }
+
+    /**
+     * Number of nodes expanded by the last call to {@link #informedPath}.
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * Returns the word ids of a shortest ladder from source to target, or
+     * null if there is none.
+     */
+    public int[] shortestPath(int source, int target) {
+        if (source == target) return new int[] { source };
+        if (!graph.connected(source, target)) return null;
+        int best = bidirectional(source, target, nextGeneration());
+        if (best < 0) return null;
+
+        int[] path = new int[best + 1];
+        int i = fwdDist[meetNode];
+        for (int v = meetNode; v != -1; v = fwdParent[v]) path[i--] = v;
+        i = fwdDist[meetNode];
+        for (int v = meetNode; v != -1; v = bwdParent[v]) path[i++] = v;
+        return path;
+    }
+
+    /**
+     * Returns every shortest ladder from source to target as a layered DAG,
+     * or null if there is none.
+     *
+     * Runs the same bidirectional BFS as {@link #shortestPath}. All nodes on
+     * the meeting level that complete a shortest ladder form one layer;
+     * the remaining layers are peeled off towards each end by keeping the
+     * neighbours one step closer to that side's root.
+     */
+    public LadderDag allShortestPaths(int source, int target) {
+        if (source == target)
+            return new LadderDag(graph, new int[] { source }, new int[] { 0, 1 }, new int[] { 0, 0 }, new int[0]);
+        if (!graph.connected(source, target)) return null;
+        int gen = nextGeneration();
+        int best = bidirectional(source, target, gen);
+        if (best < 0) return null;
+
+        int[][] layers = new int[best + 1][];
+        int[] queue = meetForward ? fwdQueue : bwdQueue;
+        int[] meeting = new int[meetLevelEnd - meetLevelStart];
+        int count = 0;
+        for (int i = meetLevelStart; i < meetLevelEnd; i++) {
+            int w = queue[i];
+            if (fwdMark[w] == gen && bwdMark[w] == gen && fwdDist[w] + bwdDist[w] == best)
+                meeting[count++] = w;
+        }
+        int m = fwdDist[meetNode];
+        layers[m] = Arrays.copyOf(meeting, count);
+        for (int i = m; i > 0; i--) layers[i - 1] = peel(layers[i], fwdMark, fwdDist, i - 1, gen);
+        for (int i = m; i < best; i++) layers[i + 1] = peel(layers[i], bwdMark, bwdDist, best - i - 1, gen);
+
+        int[] layerStart = new int[best + 2];
+        for (int i = 0; i <= best; i++) layerStart[i + 1] = layerStart[i] + layers[i].length;
+        int[] nodes = new int[layerStart[best + 1]];
+        for (int i = 0; i <= best; i++) {
+            for (int k = 0; k < layers[i].length; k++) {
+                int v = layers[i][k];
+                nodes[layerStart[i] + k] = v;
+                dagIndex[v] = layerStart[i] + k;
+            }
+        }
+        IntBuffer offsets = graph.offsets;
+        IntBuffer targets = graph.targets;
+        int[] edgeStart = new int[nodes.length + 1];
+        int[] edgeTarget = new int[16];
+        int edges = 0;
+        for (int i = 0; i <= best; i++) {
+            for (int k = layerStart[i]; k < layerStart[i + 1]; k++) {
+                edgeStart[k] = edges;
+                if (i == best) continue;
+                int v = nodes[k];
+                for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+                    int w = targets.get(e);
+                    if (dagMark[w] != gen || dagIndex[w] < layerStart[i + 1] || dagIndex[w] >= layerStart[i + 2])
+                        continue;
+                    if (edges == edgeTarget.length) edgeTarget = Arrays.copyOf(edgeTarget, 2 * edges);
+                    edgeTarget[edges++] = dagIndex[w];
+                }
+            }
+        }
+        edgeStart[nodes.length] = edges;
+        return new LadderDag(graph, nodes, layerStart, edgeStart, Arrays.copyOf(edgeTarget, edges));
+    }
+
+    /**
+     * Returns the neighbours of {@code layer} that one side of the search
+     * reached at distance {@code d}, marking them in dagMark.
+     */
+    private int[] peel(int[] layer, int[] mark, int[] dist, int d, int gen) {
+        IntBuffer offsets = graph.offsets;
+        IntBuffer targets = graph.targets;
+        int[] next = new int[Math.max(4, layer.length)];
+        int count = 0;
+        for (int v : layer) {
+            dagMark[v] = gen;
+            for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+                int w = targets.get(e);
+                if (mark[w] != gen || dist[w] != d || dagMark[w] == gen) continue;
+                dagMark[w] = gen;
+                if (count == next.length) next = Arrays.copyOf(next, 2 * count);
+                next[count++] = w;
+            }
+        }
+        return Arrays.copyOf(next, count);
+    }
+
+    /**
+     * Bidirectional BFS: the side with the smaller frontier expands one full
+     * level at a time, and the search stops after the first level on which
+     * the two sides meet, keeping the shortest connection seen on that level.
+     *
+     * Returns the ladder length, or -1. On success meetNode is a node on a
+     * shortest ladder, and the last level expanded sits in
+     * [meetLevelStart, meetLevelEnd) of the forward queue if meetForward,
+     * else of the backward queue.
+     */
+    private int bidirectional(int source, int target, int gen) {
+        IntBuffer offsets = graph.offsets;
+        IntBuffer targets = graph.targets;
+
+        int fHead = 0, fTail = 0, bHead = 0, bTail = 0;
+        fwdMark[source] = gen;
+        fwdParent[source] = -1;
+        fwdDist[source] = 0;
+        fwdQueue[fTail++] = source;
+        bwdMark[target] = gen;
+        bwdParent[target] = -1;
+        bwdDist[target] = 0;
+        bwdQueue[bTail++] = target;
+
+        int meet = -1;
+        int best = Integer.MAX_VALUE;
+        while (meet < 0 && fHead < fTail && bHead < bTail) {
+            boolean forward = fTail - fHead <= bTail - bHead;
+            int[] mark = forward ? fwdMark : bwdMark;
+            int[] otherMark = forward ? bwdMark : fwdMark;
+            int[] parent = forward ? fwdParent : bwdParent;
+            int[] dist = forward ? fwdDist : bwdDist;
+            int[] otherDist = forward ? bwdDist : fwdDist;
+            int[] queue = forward ? fwdQueue : bwdQueue;
+            int head = forward ? fHead : bHead;
+            int tail = forward ? fTail : bTail;
+
+            int levelEnd = tail;
+            meetForward = forward;
+            meetLevelStart = tail;
+            while (head < levelEnd) {
+                int v = queue[head++];
+                for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+                    int w = targets.get(e);
+                    if (mark[w] == gen) continue;
+                    mark[w] = gen;
+                    parent[w] = v;
+                    dist[w] = dist[v] + 1;
+                    queue[tail++] = w;
+                    if (otherMark[w] == gen && dist[w] + otherDist[w] < best) {
+                        best = dist[w] + otherDist[w];
+                        meet = w;
+                    }
+                }
+            }
+            meetLevelEnd = tail;
+            if (forward) {
+                fHead = head;
+                fTail = tail;
+            } else {
+                bHead = head;
+                bTail = tail;
+            }
+        }
+        meetNode = meet;
+        return meet < 0 ? -1 : best;
+    }
+
+    /**
+     * Answers many queries from one source with a single BFS: returns one
+     * shortest path per entry of {@code targets}, null where unreachable.
+     * The BFS stops as soon as every reachable target has been seen.
+     */
+    public int[][] shortestPathsFrom(int source, int[] targets) {
+        int[][] paths = new int[targets.length][];
+        int gen = nextGeneration();
+        IntBuffer offsets = graph.offsets;
+        IntBuffer edges = graph.targets;
+        // bwdMark flags the targets still to be found.
+        int remaining = 0;
+        for (int t : targets) {
+            if (graph.connected(source, t) && bwdMark[t] != gen) {
+                bwdMark[t] = gen;
+                remaining++;
+            }
+        }
+        int head = 0, tail = 0;
+        fwdMark[source] = gen;
+        fwdParent[source] = -1;
+        fwdDist[source] = 0;
+        fwdQueue[tail++] = source;
+        if (bwdMark[source] == gen) remaining--;
+        while (head < tail && remaining > 0) {
+            int v = fwdQueue[head++];
+            for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+                int w = edges.get(e);
+                if (fwdMark[w] == gen) continue;
+                fwdMark[w] = gen;
+                fwdParent[w] = v;
+                fwdDist[w] = fwdDist[v] + 1;
+                fwdQueue[tail++] = w;
+                if (bwdMark[w] == gen) remaining--;
+            }
+        }
+        for (int i = 0; i < targets.length; i++) {
+            if (fwdMark[targets[i]] == gen) paths[i] = tracePath(targets[i]);
+        }
+        return paths;
+    }
+
+    /**
+     * Returns the word ids of a shortest ladder using A* search, or null if
+     * there is none.
+     *
+     * Every step changes one letter, so the number of differing letters is
+     * an admissible and consistent heuristic; so is the landmark lower bound,
+     * and the larger of the two is used when landmarks are available. f values are small ints, so
+     * the open list is a bucket queue scanned upward from the current
+     * minimum; stale entries are skipped when popped. The forward arrays
+     * hold g and the parent tree, bwdMark marks closed nodes.
+     */
+    public int[] informedPath(int source, int target) {
+        expanded = 0;
+        if (source == target) return new int[] { source };
+        if (!graph.connected(source, target) || graph.length(source) != graph.length(target))
+            return null;
+        int gen = nextGeneration();
+        IntBuffer offsets = graph.offsets;
+        IntBuffer targets = graph.targets;
+        int entries = 0;
+
+        fwdMark[source] = gen;
+        fwdParent[source] = -1;
+        fwdDist[source] = 0;
+        int f = heuristic(source, target);
+        entries = push(f, source, 0, entries, gen);
+        while (f < bucketHead.length) {
+            if (bucketMark[f] != gen || bucketHead[f] < 0) {
+                f++;
+                continue;
+            }
+            int entry = bucketHead[f];
+            bucketHead[f] = entryNext[entry];
+            int v = entryNode[entry];
+            if (bwdMark[v] == gen || entryG[entry] != fwdDist[v]) continue;
+            if (v == target) return tracePath(target);
+            bwdMark[v] = gen;
+            expanded++;
+            int g = fwdDist[v] + 1;
+            for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+                int w = targets.get(e);
+                if (bwdMark[w] == gen || (fwdMark[w] == gen && fwdDist[w] <= g)) continue;
+                fwdMark[w] = gen;
+                fwdParent[w] = v;
+                fwdDist[w] = g;
+                entries = push(g + heuristic(w, target), w, g, entries, gen);
+            }
+        }
+        return null;
+    }
+
+    private int heuristic(int v, int target) {
+        int diff = 0;
+        for (int i = graph.length(v) - 1; i >= 0; i--) {
+            if (graph.letter(v, i) != graph.letter(target, i)) diff++;
+        }
+        if (landmarks != null) diff = Math.max(diff, landmarks.lowerBound(v, target));
+        return diff;
+    }
+
+    private int push(int f, int node, int g, int entries, int gen) {
+        if (entries == entryNode.length) {
+            entryNode = Arrays.copyOf(entryNode, 2 * entries);
+            entryG = Arrays.copyOf(entryG, 2 * entries);
+            entryNext = Arrays.copyOf(entryNext, 2 * entries);
+        }
+        if (bucketMark[f] != gen) {
+            bucketMark[f] = gen;
+            bucketHead[f] = -1;
+        }
+        entryNode[entries] = node;
+        entryG[entries] = g;
+        entryNext[entries] = bucketHead[f];
+        bucketHead[f] = entries;
+        return entries + 1;
+    }
+
+    private int[] tracePath(int target) {
+        int[] path = new int[fwdDist[target] + 1];
+        int i = path.length - 1;
+        for (int v = target; v != -1; v = fwdParent[v]) path[i--] = v;
+        return path;
+    }
+
+    private int nextGeneration() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(fwdMark, 0);
+            Arrays.fill(bwdMark, 0);
+            Arrays.fill(dagMark, 0);
+            Arrays.fill(bucketMark, 0);
+            generation = 1;
+        }
+        return generation;
+    }
+}
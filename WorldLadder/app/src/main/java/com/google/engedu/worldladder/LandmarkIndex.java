@@ -0,0 +1,139 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.worldladder;
+
+import com.google.engedu.metrics.MetricsRegistry;
+
+import java.util.Arrays;
+
+/**
+ * Distance oracle built from BFS distances to a few landmark words.
+ *
+ * By the triangle inequality, for any landmark L the ladder distance d(u, v)
+ * lies between |d(L, u) - d(L, v)| and d(L, u) + d(L, v), so bounds for any
+ * pair cost O(k) with no search. Distances are stored one byte per word per
+ * landmark.
+ */
+public class LandmarkIndex {
+
+    static final int UNREACHABLE = 255;
+    // Distances this large are stored as "at least CAPPED".
+    static final int CAPPED = 254;
+
+    private final WordGraph graph;
+    private final int[] landmarks;
+    private final byte[][] distances;
+
+    /**
+     * Picks up to {@code count} landmarks in the largest component: the
+     * best-connected word first, then repeatedly the word farthest from all
+     * landmarks chosen so far.
+     */
+    public LandmarkIndex(WordGraph graph, int count) {
+        this.graph = graph;
+        int n = graph.size();
+        int largest = -1;
+        for (int c = 0; c < graph.componentCount(); c++) {
+            if (largest < 0 || graph.componentSizes.get(c) > graph.componentSizes.get(largest)) largest = c;
+        }
+        int first = -1;
+        for (int v = 0; v < n; v++) {
+            if (graph.component(v) == largest && (first < 0 || graph.degree(v) > graph.degree(first)))
+                first = v;
+        }
+        if (first < 0) count = 0;
+        else count = Math.min(count, graph.componentSizes.get(largest));
+
+        landmarks = new int[count];
+        distances = new byte[count][];
+        int[] queue = new int[n];
+        int[] nearest = new int[n];
+        Arrays.fill(nearest, Integer.MAX_VALUE);
+        int next = first;
+        for (int i = 0; i < count; i++) {
+            landmarks[i] = next;
+            distances[i] = distancesFrom(next, queue);
+            int farthest = -1;
+            for (int v = 0; v < n; v++) {
+                int d = distances[i][v] & 0xff;
+                if (d == UNREACHABLE) continue;
+                if (d < nearest[v]) nearest[v] = d;
+                if (farthest < 0 || nearest[v] > nearest[farthest]) farthest = v;
+            }
+            next = farthest;
+        }
+    }
+
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    public int getLandmark(int i) {
+        return landmarks[i];
+    }
+
+    /**
+     * Returns a lower bound on the number of steps between two words.
+     */
+    public int lowerBound(int u, int v) {
+        int bound = 0;
+        for (byte[] d : distances) {
+            int du = d[u] & 0xff, dv = d[v] & 0xff;
+            if (du == UNREACHABLE || dv == UNREACHABLE) continue;
+            bound = Math.max(bound, Math.abs(du - dv));
+        }
+        return bound;
+    }
+
+    /**
+     * Returns an upper bound on the number of steps between two words in
+     * the same component, or Integer.MAX_VALUE if no landmark reaches both.
+     */
+    public int upperBound(int u, int v) {
+        int bound = Integer.MAX_VALUE;
+        for (byte[] d : distances) {
+            int du = d[u] & 0xff, dv = d[v] & 0xff;
+            if (du >= CAPPED || dv >= CAPPED) continue;
+            bound = Math.min(bound, du + dv);
+        }
+        return bound;
+    }
+
+    public long getRetainedBytes() {
+        long bytes = 2 * MetricsRegistry.ARRAY_OVERHEAD + 4L * landmarks.length;
+        for (byte[] d : distances) bytes += MetricsRegistry.ARRAY_OVERHEAD + d.length;
+        return bytes;
+    }
+
+    private byte[] distancesFrom(int source, int[] queue) {
+        byte[] dist = new byte[graph.size()];
+        Arrays.fill(dist, (byte) UNREACHABLE);
+        int head = 0, tail = 0;
+        queue[tail++] = source;
+        dist[source] = 0;
+        while (head < tail) {
+            int v = queue[head++];
+            int d = Math.min((dist[v] & 0xff) + 1, CAPPED);
+            for (int e = graph.offsets.get(v); e < graph.offsets.get(v + 1); e++) {
+                int w = graph.targets.get(e);
+                if ((dist[w] & 0xff) != UNREACHABLE) continue;
+                dist[w] = (byte) d;
+                queue[tail++] = w;
+            }
+        }
+        return dist;
+    }
+}
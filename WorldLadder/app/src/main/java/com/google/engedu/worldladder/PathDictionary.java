@@ -17,95 +17,506 @@ package com.google.engedu.worldladder;
 
 import android.util.Log;
 
+import com.google.engedu.metrics.DictionaryMetrics;
+import com.google.engedu.metrics.LatencyHistogram;
+import com.google.engedu.metrics.MetricsRegistry;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Word-ladder dictionary with one graph per word length.
+ *
+ * Ladders never change a word's length, so each length gets its own graph.
+ * A graph is built the first time a query needs it and cached afterwards;
+ * until then only the raw word list for that length is kept. A dictionary
+ * made from a WordGraphImage starts from the mapped graphs instead and
+ * only builds their landmark indexes on first use.
+ *
+ * Instances are safe to query from many threads. The word lists are fixed
+ * at construction, built graphs are immutable and published through atomic
+ * references, and every thread gets its own search scratch space.
+ */
+public class PathDictionary implements DictionaryMetrics {
 
-public class PathDictionary {
+    private static class Partition {
+        final WordGraph graph;
+        final LandmarkIndex landmarks;
+        final long buildTimeNanos;
+        private final ThreadLocal<LadderSearch> searches;
 
-    class GraphNode {
-        String word;
-        ArrayList<String> neighbourhood;
-        GraphNode(String word) {
-            word = word;
-            neighbourhood = new ArrayList<>();
+        Partition(final WordGraph graph, final LandmarkIndex landmarks, long buildTimeNanos) {
+            this.graph = graph;
+            this.landmarks = landmarks;
+            this.buildTimeNanos = buildTimeNanos;
+            this.searches = new ThreadLocal<LadderSearch>() {
+                @Override
+                protected LadderSearch initialValue() {
+                    return new LadderSearch(graph, landmarks);
+                }
+            };
+        }
+
+        LadderSearch search() {
+            return searches.get();
         }
     }
 
-    private static final int MAX_WORD_LENGTH = 4;
-    private static HashSet<String> words = new HashSet<>();
-    public HashMap<String, GraphNode> neighbour_map = new HashMap<>();
+    private static final int LANDMARK_COUNT = 8;
+
+    private final HashSet<String> words = new HashSet<>();
+    private final ArrayList<ArrayList<String>> wordsByLength = new ArrayList<>();
+    private final AtomicReferenceArray<Partition> partitions;
+    // Graphs loaded from a WordGraphImage, by word length; used instead of building.
+    private final WordGraph[] prebuilt;
+    private volatile Partition editPartition;
+    private final int wordCount;
+    private final long buildTimeNanos;
+    private final LatencyHistogram isWordLatency = new LatencyHistogram();
+    private final LatencyHistogram findPathLatency = new LatencyHistogram();
+    private final LatencyHistogram allPathsLatency = new LatencyHistogram();
+    private final LatencyHistogram informedPathLatency = new LatencyHistogram();
+    private final LatencyHistogram editPathLatency = new LatencyHistogram();
+    private final LatencyHistogram batchPathsLatency = new LatencyHistogram();
+    private final LatencyHistogram pathsFromLatency = new LatencyHistogram();
 
     public PathDictionary(InputStream inputStream) throws IOException {
-        if (inputStream == null) {
-            return;
-        }
-        Log.i("Word ladder", "Loading dict");
-        BufferedReader in = new BufferedReader(new InputStreamReader(inputStream));
-        String line = null;
-        Log.i("Word ladder", "Loading dict");
-        int diff;
-        while((line = in.readLine()) != null) {
-            String word = line.trim();
-            if (word.length() > MAX_WORD_LENGTH) {
-                continue;
-            }
-            GraphNode node = new GraphNode(word);
-            neighbour_map.put(word, node);
-            for(String s:words) {
-                if(s.length() != word.length()) continue;
-                diff = 0;
-                for(int i=0; i<s.length(); i++) {
-                    if(s.charAt(i) != word.charAt(i)) diff++;
-                    if(diff > 1) break;
-                }
-                if(diff == 1) {
-                    node.neighbourhood.add(s);
-                    if(neighbour_map.containsKey(s)) neighbour_map.get(s).neighbourhood.add(word);
+        long start = System.nanoTime();
+        int count = 0;
+        if (inputStream != null) {
+            Log.i("Word ladder", "Loading dict");
+            BufferedReader in = new BufferedReader(new InputStreamReader(inputStream));
+            String line = null;
+            while((line = in.readLine()) != null) {
+                String word = line.trim();
+                if (word.length() == 0 || !words.add(word)) {
+                    continue;
                 }
+                while (wordsByLength.size() <= word.length()) wordsByLength.add(new ArrayList<String>());
+                wordsByLength.get(word.length()).add(word);
+                count++;
             }
-            words.add(word);
         }
+        wordCount = count;
+        partitions = new AtomicReferenceArray<>(wordsByLength.size());
+        prebuilt = new WordGraph[wordsByLength.size()];
+        buildTimeNanos = System.nanoTime() - start;
     }
 
-    public boolean isWord(String word) {
-        return words.contains(word.toLowerCase());
+    /**
+     * Creates a dictionary over graphs read by {@link WordGraphImage}, one
+     * per word length. The words are taken from the graphs themselves, so
+     * no word list is read or hashed.
+     */
+    public PathDictionary(List<WordGraph> graphs) {
+        long start = System.nanoTime();
+        int maxLength = 0;
+        int count = 0;
+        for (WordGraph graph : graphs) {
+            if (graph.size() == 0) continue;
+            maxLength = Math.max(maxLength, graph.length(0));
+            count += graph.size();
+        }
+        prebuilt = new WordGraph[maxLength + 1];
+        for (WordGraph graph : graphs) {
+            if (graph.size() > 0) prebuilt[graph.length(0)] = graph;
+        }
+        while (wordsByLength.size() <= maxLength) wordsByLength.add(new ArrayList<String>());
+        wordCount = count;
+        partitions = new AtomicReferenceArray<>(prebuilt.length);
+        buildTimeNanos = System.nanoTime() - start;
     }
 
-    private ArrayList<String> neighbours(String word) {
-        return neighbour_map.get(word).neighbourhood;
+    public boolean isWord(String word) {
+        long start = System.nanoTime();
+        String key = word.toLowerCase();
+        WordGraph graph = key.length() < prebuilt.length ? prebuilt[key.length()] : null;
+        boolean result = graph != null ? graph.id(key) >= 0 : words.contains(key);
+        isWordLatency.record(System.nanoTime() - start);
+        return result;
     }
 
     public ArrayList<String> findPath(String start, String end) {
-        ArrayDeque<ArrayList<String>> paths_to_explore = new ArrayDeque<>();
-        paths_to_explore.add(new ArrayList<>(Arrays.asList(start)));
-        HashSet<String> visited = new HashSet<>();
-        visited.add(start);
+        long startTime = System.nanoTime();
+        ArrayList<String> path = null;
+        Partition partition = partitionFor(start, end);
+        if (partition != null) {
+            int source = partition.graph.id(start);
+            int target = partition.graph.id(end);
+            if (source >= 0 && target >= 0)
+                path = decode(partition.graph, partition.search().shortestPath(source, target));
+        }
+        findPathLatency.record(System.nanoTime() - startTime);
+        return path;
+    }
+
+    /**
+     * Returns every shortest ladder between the two words as a layered DAG,
+     * or null if there is none. Ladders are enumerated lazily, so this is
+     * safe even when there are exponentially many of them.
+     */
+    public LadderDag findAllPaths(String start, String end) {
+        long startTime = System.nanoTime();
+        LadderDag dag = null;
+        Partition partition = partitionFor(start, end);
+        if (partition != null) {
+            int source = partition.graph.id(start);
+            int target = partition.graph.id(end);
+            if (source >= 0 && target >= 0) dag = partition.search().allShortestPaths(source, target);
+        }
+        allPathsLatency.record(System.nanoTime() - startTime);
+        return dag;
+    }
+
+    /**
+     * Same as {@link #findPath} but uses A* guided by the number of differing
+     * letters, which expands far fewer words on long ladders.
+     */
+    public ArrayList<String> findInformedPath(String start, String end) {
+        long startTime = System.nanoTime();
+        ArrayList<String> path = null;
+        Partition partition = partitionFor(start, end);
+        if (partition != null) {
+            int source = partition.graph.id(start);
+            int target = partition.graph.id(end);
+            if (source >= 0 && target >= 0)
+                path = decode(partition.graph, partition.search().informedPath(source, target));
+        }
+        informedPathLatency.record(System.nanoTime() - startTime);
+        return path;
+    }
+
+    /**
+     * Solves the pairs (starts[i], ends[i]) in parallel and returns one ladder
+     * per pair, null where there is none.
+     *
+     * The graphs are shared read-only. Each worker takes a contiguous slice
+     * of the pairs and reuses its own LadderSearch per word length, so the
+     * primitive scratch arrays are allocated once per worker, not per pair.
+     */
+    public List<ArrayList<String>> findPaths(final List<String> starts, final List<String> ends,
+                                             int threads) throws InterruptedException {
+        if (starts.size() != ends.size())
+            throw new IllegalArgumentException(starts.size() + " starts but " + ends.size() + " ends");
+        long startTime = System.nanoTime();
+        final int count = starts.size();
+        final ArrayList<ArrayList<String>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) results.add(null);
+        // Build every graph the batch needs before the workers start.
+        for (int i = 0; i < count; i++) partitionFor(starts.get(i), ends.get(i));
+
+        threads = Math.max(1, Math.min(threads, count));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<?>> futures = new ArrayList<>();
+            final int slice = (count + threads - 1) / threads;
+            for (int from = 0; from < count; from += slice) {
+                final int lo = from;
+                final int hi = Math.min(count, from + slice);
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = lo; i < hi; i++) {
+                            String start = starts.get(i), end = ends.get(i);
+                            Partition partition = partitionFor(start, end);
+                            if (partition == null) continue;
+                            int source = partition.graph.id(start);
+                            int target = partition.graph.id(end);
+                            if (source < 0 || target < 0) continue;
+                            results.set(i, decode(partition.graph, partition.search().shortestPath(source, target)));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        batchPathsLatency.record(System.nanoTime() - startTime);
+        return results;
+    }
+
+    public List<ArrayList<String>> findPaths(List<String> starts, List<String> ends)
+            throws InterruptedException {
+        return findPaths(starts, ends, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns one shortest ladder from {@code start} to each word of
+     * {@code ends}, null where there is none, using a single BFS.
+     */
+    public List<ArrayList<String>> findPathsFrom(String start, List<String> ends) {
+        long startTime = System.nanoTime();
+        ArrayList<ArrayList<String>> results = new ArrayList<>(ends.size());
+        for (int i = 0; i < ends.size(); i++) results.add(null);
+        Partition partition = partition(start.length());
+        int source = partition == null ? -1 : partition.graph.id(start);
+        if (source >= 0) {
+            int[] targets = new int[ends.size()];
+            int[] index = new int[ends.size()];
+            int count = 0;
+            for (int i = 0; i < ends.size(); i++) {
+                String end = ends.get(i);
+                int target = end.length() == start.length() ? partition.graph.id(end) : -1;
+                if (target < 0) continue;
+                targets[count] = target;
+                index[count++] = i;
+            }
+            int[][] paths = partition.search().shortestPathsFrom(source, Arrays.copyOf(targets, count));
+            for (int i = 0; i < count; i++) results.set(index[i], decode(partition.graph, paths[i]));
+        }
+        pathsFromLatency.record(System.nanoTime() - startTime);
+        return results;
+    }
+
+    /**
+     * Returns a shortest ladder where each step substitutes, inserts or
+     * deletes one letter, so start and end may differ in length.
+     * The graph over all words is built on first use.
+     */
+    public ArrayList<String> findEditPath(String start, String end) {
+        long startTime = System.nanoTime();
+        ArrayList<String> path = null;
+        Partition partition = editPartition();
+        int source = partition.graph.id(start);
+        int target = partition.graph.id(end);
+        if (source >= 0 && target >= 0)
+            path = decode(partition.graph, partition.search().shortestPath(source, target));
+        editPathLatency.record(System.nanoTime() - startTime);
+        return path;
+    }
 
-        while(!paths_to_explore.isEmpty()) {
-            ArrayList<String> path = paths_to_explore.pollFirst();
+    /**
+     * Returns the word that follows {@code current} on an optimal ladder to
+     * {@code end}, or null if {@code end} is unreachable or already reached.
+     */
+    public String nextBestWord(String current, String end) {
+        ArrayList<String> path = findInformedPath(current, end);
+        if (path == null || path.size() < 2) return null;
+        return path.get(1);
+    }
+
+    /**
+     * Returns whether some ladder joins the two words, in constant time once
+     * the graph for their length is built.
+     */
+    public boolean isReachable(String start, String end) {
+        Partition partition = partitionFor(start, end);
+        if (partition == null) return false;
+        int source = partition.graph.id(start);
+        int target = partition.graph.id(end);
+        return source >= 0 && target >= 0 && partition.graph.connected(source, target);
+    }
+
+    /**
+     * Returns {lower, upper} bounds on the number of steps in a ladder between
+     * the two words, from landmark distances alone. The upper bound is
+     * Integer.MAX_VALUE when no landmark reaches the pair. Returns null if
+     * there is no ladder at all.
+     */
+    public int[] getLadderLengthBounds(String start, String end) {
+        Partition partition = partitionFor(start, end);
+        if (partition == null) return null;
+        int source = partition.graph.id(start);
+        int target = partition.graph.id(end);
+        if (source < 0 || target < 0 || !partition.graph.connected(source, target)) return null;
+        int lower = partition.landmarks.lowerBound(source, target);
+        int differing = 0;
+        for (int i = 0; i < start.length(); i++) {
+            if (start.charAt(i) != end.charAt(i)) differing++;
+        }
+        return new int[] { Math.max(lower, differing), partition.landmarks.upperBound(source, target) };
+    }
 
-            if(path.get(path.size() - 1).equals(end)) return path;
-            if(path.size() > 8) continue;
+    /**
+     * Returns the number of words reachable from {@code word} (itself
+     * included), or 0 if it is not a word.
+     */
+    public int getComponentSize(String word) {
+        Partition partition = partition(word.length());
+        if (partition == null) return 0;
+        int id = partition.graph.id(word);
+        return id < 0 ? 0 : partition.graph.componentSize(id);
+    }
 
-            for(String word:neighbours(path.get(path.size() - 1))) {
-                if(visited.contains(word)) continue;
-                visited.add(word);
+    /**
+     * Returns the sizes of all connected components among words of this
+     * length, so callers can pick puzzle pairs from large components.
+     */
+    public int[] getComponentSizes(int length) {
+        Partition partition = partition(length);
+        if (partition == null) return new int[0];
+        int[] sizes = new int[partition.graph.componentCount()];
+        for (int c = 0; c < sizes.length; c++) sizes[c] = partition.graph.componentSizes.get(c);
+        return sizes;
+    }
+
+    /**
+     * Returns whether the graph for words of this length has been built.
+     */
+    public boolean isPartitionBuilt(int length) {
+        return length < partitions.length() && partitions.get(length) != null;
+    }
 
-                ArrayList<String> new_path = new ArrayList<>(path);
-                new_path.add(word);
-                paths_to_explore.add(new_path);
+    public int getPartitionWordCount(int length) {
+        if (length >= wordsByLength.size()) return 0;
+        return prebuilt[length] != null ? prebuilt[length].size() : wordsByLength.get(length).size();
+    }
+
+    /**
+     * Returns the memory held for words of this length: the graph once it is
+     * built, the raw word list or unindexed prebuilt graph before that.
+     */
+    public long getPartitionBytes(int length) {
+        if (length >= partitions.length()) return 0;
+        Partition partition = partitions.get(length);
+        if (partition != null)
+            return partition.graph.getRetainedBytes() + partition.landmarks.getRetainedBytes();
+        if (prebuilt[length] != null) return prebuilt[length].getRetainedBytes();
+        long bytes = MetricsRegistry.ARRAY_OVERHEAD;
+        for (String word : wordsByLength.get(length))
+            bytes += MetricsRegistry.REFERENCE + MetricsRegistry.stringBytes(word);
+        return bytes;
+    }
+
+    public long getPartitionBuildTimeNanos(int length) {
+        return isPartitionBuilt(length) ? partitions.get(length).buildTimeNanos : 0;
+    }
+
+    private Partition partitionFor(String start, String end) {
+        if (start.length() != end.length()) return null;
+        return partition(start.length());
+    }
+
+    /**
+     * Returns the partition for this length, building it on first use.
+     * Readers never block once it exists; builders are serialized.
+     */
+    private Partition partition(int length) {
+        if (length >= partitions.length()) return null;
+        Partition partition = partitions.get(length);
+        if (partition != null) return partition;
+        synchronized (this) {
+            partition = partitions.get(length);
+            if (partition == null) {
+                long start = System.nanoTime();
+                WordGraph graph = prebuilt[length];
+                if (graph == null) graph = WordGraph.build(wordsByLength.get(length));
+                LandmarkIndex landmarks = new LandmarkIndex(graph, LANDMARK_COUNT);
+                partition = new Partition(graph, landmarks, System.nanoTime() - start);
+                partitions.set(length, partition);
             }
+            return partition;
         }
+    }
 
-        if(!paths_to_explore.peek().isEmpty()) return paths_to_explore.pollFirst();
+    private Partition editPartition() {
+        Partition partition = editPartition;
+        if (partition != null) return partition;
+        synchronized (this) {
+            if (editPartition == null) {
+                long start = System.nanoTime();
+                ArrayList<String> all = new ArrayList<>(wordCount);
+                for (int length = 0; length < wordsByLength.size(); length++) {
+                    WordGraph graph = prebuilt[length];
+                    if (graph == null) {
+                        all.addAll(wordsByLength.get(length));
+                    } else {
+                        for (int v = 0; v < graph.size(); v++) all.add(graph.word(v));
+                    }
+                }
+                WordGraph graph = WordGraph.buildEditGraph(all);
+                LandmarkIndex landmarks = new LandmarkIndex(graph, LANDMARK_COUNT);
+                editPartition = new Partition(graph, landmarks, System.nanoTime() - start);
+            }
+            return editPartition;
+        }
+    }
+
+    private static ArrayList<String> decode(WordGraph graph, int[] ids) {
+        if (ids == null) return null;
+        ArrayList<String> path = new ArrayList<>(ids.length);
+        for (int id : ids) path.add(graph.word(id));
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return "PathDictionary";
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        long bytes = 0;
+        for (int length = 0; length < wordsByLength.size(); length++) bytes += getPartitionBytes(length);
+        Partition edit = editPartition;
+        if (edit != null)
+            bytes += edit.graph.getRetainedBytes() + edit.landmarks.getRetainedBytes();
+        return bytes;
+    }
+
+    @Override
+    public int getEntryCount() {
+        return wordCount;
+    }
+
+    /**
+     * Number of graph nodes built so far.
+     */
+    @Override
+    public int getNodeCount() {
+        int nodes = 0;
+        for (int length = 0; length < partitions.length(); length++) {
+            Partition partition = partitions.get(length);
+            if (partition != null) nodes += partition.graph.size();
+        }
+        Partition edit = editPartition;
+        if (edit != null) nodes += edit.graph.size();
+        return nodes;
+    }
+
+    /**
+     * Time to load the word lists plus the time spent building graphs so far.
+     */
+    @Override
+    public long getBuildTimeNanos() {
+        long nanos = buildTimeNanos;
+        for (int length = 0; length < partitions.length(); length++) {
+            Partition partition = partitions.get(length);
+            if (partition != null) nanos += partition.buildTimeNanos;
+        }
+        Partition edit = editPartition;
+        if (edit != null) nanos += edit.buildTimeNanos;
+        return nanos;
+    }
 
-        return null;
+    @Override
+    public Map<String, LatencyHistogram> getLatencies() {
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        latencies.put("isWord", isWordLatency);
+        latencies.put("findPath", findPathLatency);
+        latencies.put("findAllPaths", allPathsLatency);
+        latencies.put("findInformedPath", informedPathLatency);
+        latencies.put("findEditPath", editPathLatency);
+        latencies.put("findPaths", batchPathsLatency);
+        latencies.put("findPathsFrom", pathsFromLatency);
+        return latencies;
     }
 }
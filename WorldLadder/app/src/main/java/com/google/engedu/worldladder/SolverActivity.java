@@ -10,6 +10,7 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 
 import static android.graphics.Color.GREEN;
 import static android.graphics.Color.RED;
@@ -23,6 +24,12 @@ public class SolverActivity extends AppCompatActivity {
 
         Intent intent = getIntent();
         final ArrayList<String> words = intent.getStringArrayListExtra("words");
+        final ArrayList<HashSet<String>> layers = new ArrayList<>();
+        layers.add(null);
+        for (int i = 1; i < words.size() - 1; i++) {
+            ArrayList<String> layer = intent.getStringArrayListExtra("layer" + i);
+            layers.add(new HashSet<>(layer != null ? layer : words.subList(i, i + 1)));
+        }
 
         LinearLayout layout =(LinearLayout)findViewById(R.id.activity_solver);
         LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT,LinearLayout.LayoutParams.WRAP_CONTENT);
@@ -38,7 +45,12 @@ public class SolverActivity extends AppCompatActivity {
             public void onFocusChange(View v, boolean hasFocus) {
                 int vId= v.getId();
                 EditText editText = (EditText)findViewById(vId);
-                if(editText.getText().toString().equals(words.get(vId)))
+                String word = editText.getText().toString().toLowerCase();
+                String previous = vId == 1 ? words.get(0)
+                        : ((EditText)findViewById(vId - 1)).getText().toString().toLowerCase();
+                // Any word of a shortest ladder at this step works, as long as
+                // it follows on from the word above it.
+                if(layers.get(vId).contains(word) && oneLetterApart(previous, word))
                     editText.setTextColor(GREEN);
                 else
                     editText.setTextColor(RED);
@@ -76,4 +88,13 @@ public class SolverActivity extends AppCompatActivity {
         layout.addView(solverButton);
 
     }
+
+    private static boolean oneLetterApart(String a, String b) {
+        if (a.length() != b.length()) return false;
+        int diff = 0;
+        for (int i = 0; i < a.length(); i++) {
+            if (a.charAt(i) != b.charAt(i)) diff++;
+        }
+        return diff == 1;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,336 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.worldladder;
+
+import com.google.engedu.metrics.MetricsRegistry;
+
+import java.nio.Buffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Frozen word-ladder graph in compressed sparse row form.
+ *
+ * Words are identified by their index in sorted order, and their letters
+ * are stored back to back in one arena. The neighbours of word {@code v}
+ * are targets[offsets[v]] to targets[offsets[v + 1] - 1], so traversals
+ * work on ints only and a String is needed again only to decode the final
+ * path.
+ *
+ * The arrays are held as buffers: a graph built here wraps heap arrays,
+ * while one loaded by WordGraphImage reads straight from the mapped file.
+ * Only absolute gets are used, so a graph can be shared between threads.
+ */
+public class WordGraph {
+
+    private static final char WILDCARD = '*';
+
+    // Word v is letters[wordStart[v]] to letters[wordStart[v + 1] - 1].
+    final CharBuffer letters;
+    final IntBuffer wordStart;
+    final IntBuffer offsets;
+    final IntBuffer targets;
+    // Connected component id of every word, and the size of every component.
+    final IntBuffer component;
+    final IntBuffer componentSizes;
+
+    private WordGraph(String[] words, int[] offsets, int[] targets) {
+        int[] wordStart = new int[words.length + 1];
+        for (int v = 0; v < words.length; v++) wordStart[v + 1] = wordStart[v] + words[v].length();
+        char[] letters = new char[wordStart[words.length]];
+        for (int v = 0; v < words.length; v++) words[v].getChars(0, words[v].length(), letters, wordStart[v]);
+        int[] component = new int[words.length];
+        int[] componentSizes = labelComponents(offsets, targets, component);
+        this.letters = CharBuffer.wrap(letters);
+        this.wordStart = IntBuffer.wrap(wordStart);
+        this.offsets = IntBuffer.wrap(offsets);
+        this.targets = IntBuffer.wrap(targets);
+        this.component = IntBuffer.wrap(component);
+        this.componentSizes = IntBuffer.wrap(componentSizes);
+    }
+
+    /**
+     * Wraps buffers that are already labelled, as loaded by WordGraphImage.
+     */
+    WordGraph(CharBuffer letters, IntBuffer wordStart, IntBuffer offsets, IntBuffer targets,
+              IntBuffer component, IntBuffer componentSizes) {
+        this.letters = letters;
+        this.wordStart = wordStart;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.component = component;
+        this.componentSizes = componentSizes;
+    }
+
+    /**
+     * Labels every node with the id of its connected component by BFS and
+     * returns the component sizes.
+     */
+    private static int[] labelComponents(int[] offsets, int[] targets, int[] component) {
+        int n = component.length;
+        Arrays.fill(component, -1);
+        int[] queue = new int[n];
+        int[] sizes = new int[n];
+        int count = 0;
+        for (int root = 0; root < n; root++) {
+            if (component[root] >= 0) continue;
+            int head = 0, tail = 0;
+            queue[tail++] = root;
+            component[root] = count;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int w = targets[e];
+                    if (component[w] < 0) {
+                        component[w] = count;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            sizes[count++] = tail;
+        }
+        return Arrays.copyOf(sizes, count);
+    }
+
+    /**
+     * Builds the graph linking words that differ by exactly one substituted
+     * letter. Each word is placed in one bucket per position, keyed by the
+     * word with that letter masked, and edges come from shared buckets.
+     */
+    public static WordGraph build(List<String> wordList) {
+        String[] words = sortedUnique(wordList);
+        int[][] buckets = substitutionBuckets(words);
+        return fromBuckets(words, buckets[0], buckets[1], new int[0], new int[0]);
+    }
+
+    /**
+     * Builds the graph that also links words one inserted or deleted letter
+     * apart, across all lengths. Every word looks up each of its one-letter
+     * deletions among the words, so the build stays linear in the number
+     * of letters.
+     */
+    public static WordGraph buildEditGraph(List<String> wordList) {
+        String[] words = sortedUnique(wordList);
+        int[][] buckets = substitutionBuckets(words);
+        HashMap<String, Integer> ids = new HashMap<>();
+        for (int v = 0; v < words.length; v++) ids.put(words[v], v);
+        int[] longer = new int[16];
+        int[] shorter = new int[16];
+        int count = 0;
+        for (int v = 0; v < words.length; v++) {
+            String word = words[v];
+            String previous = null;
+            for (int i = 0; i < word.length(); i++) {
+                String deletion = word.substring(0, i) + word.substring(i + 1);
+                // Deleting any letter of a run gives the same word.
+                if (deletion.equals(previous)) continue;
+                previous = deletion;
+                Integer w = ids.get(deletion);
+                if (w == null) continue;
+                if (count == longer.length) {
+                    longer = Arrays.copyOf(longer, 2 * count);
+                    shorter = Arrays.copyOf(shorter, 2 * count);
+                }
+                longer[count] = v;
+                shorter[count] = w;
+                count++;
+            }
+        }
+        return fromBuckets(words, buckets[0], buckets[1],
+                Arrays.copyOf(longer, count), Arrays.copyOf(shorter, count));
+    }
+
+    private static String[] sortedUnique(List<String> wordList) {
+        ArrayList<String> sorted = new ArrayList<>(wordList);
+        Collections.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            if (unique == 0 || !sorted.get(i).equals(sorted.get(unique - 1)))
+                sorted.set(unique++, sorted.get(i));
+        }
+        return sorted.subList(0, unique).toArray(new String[unique]);
+    }
+
+    /**
+     * Returns {bucketStart, members}: the words sharing each masked key.
+     */
+    private static int[][] substitutionBuckets(String[] words) {
+        // One (bucket, word) membership per letter of every word.
+        int memberships = 0;
+        for (String word : words) memberships += word.length();
+        int[] memberBucket = new int[memberships];
+        int[] memberWord = new int[memberships];
+        HashMap<String, Integer> bucketIds = new HashMap<>();
+        int m = 0;
+        for (int v = 0; v < words.length; v++) {
+            char[] letters = words[v].toCharArray();
+            for (int i = 0; i < letters.length; i++) {
+                char c = letters[i];
+                letters[i] = WILDCARD;
+                String key = new String(letters);
+                letters[i] = c;
+                Integer bucket = bucketIds.get(key);
+                if (bucket == null) {
+                    bucket = bucketIds.size();
+                    bucketIds.put(key, bucket);
+                }
+                memberBucket[m] = bucket;
+                memberWord[m] = v;
+                m++;
+            }
+        }
+        int[] bucketStart = new int[bucketIds.size() + 1];
+        int[] members = groupBy(memberBucket, memberWord, bucketStart);
+        return new int[][] { bucketStart, members };
+    }
+
+    /**
+     * Links every pair of words that share a bucket, plus the undirected
+     * edges {@code extraFrom[i]}-{@code extraTo[i]}. Buckets are given as
+     * members[bucketStart[b]] to members[bucketStart[b + 1] - 1].
+     */
+    static WordGraph fromBuckets(String[] words, int[] bucketStart, int[] members,
+                                 int[] extraFrom, int[] extraTo) {
+        int[] offsets = new int[words.length + 1];
+        for (int b = 0; b + 1 < bucketStart.length; b++) {
+            int size = bucketStart[b + 1] - bucketStart[b];
+            for (int i = bucketStart[b]; i < bucketStart[b + 1]; i++) offsets[members[i] + 1] += size - 1;
+        }
+        for (int i = 0; i < extraFrom.length; i++) {
+            offsets[extraFrom[i] + 1]++;
+            offsets[extraTo[i] + 1]++;
+        }
+        for (int v = 0; v < words.length; v++) offsets[v + 1] += offsets[v];
+        int[] targets = new int[offsets[words.length]];
+        int[] fill = Arrays.copyOf(offsets, words.length);
+        for (int b = 0; b + 1 < bucketStart.length; b++) {
+            for (int i = bucketStart[b]; i < bucketStart[b + 1]; i++) {
+                for (int j = bucketStart[b]; j < bucketStart[b + 1]; j++) {
+                    if (i != j) targets[fill[members[i]]++] = members[j];
+                }
+            }
+        }
+        for (int i = 0; i < extraFrom.length; i++) {
+            targets[fill[extraFrom[i]]++] = extraTo[i];
+            targets[fill[extraTo[i]]++] = extraFrom[i];
+        }
+        return new WordGraph(words, offsets, targets);
+    }
+
+    /**
+     * Counting sort of {@code values} by {@code keys}. Fills {@code start}
+     * with the offset of each key and returns the grouped values.
+     */
+    static int[] groupBy(int[] keys, int[] values, int[] start) {
+        for (int key : keys) start[key + 1]++;
+        for (int k = 0; k + 1 < start.length; k++) start[k + 1] += start[k];
+        int[] fill = Arrays.copyOf(start, start.length - 1);
+        int[] grouped = new int[values.length];
+        for (int i = 0; i < keys.length; i++) grouped[fill[keys[i]]++] = values[i];
+        return grouped;
+    }
+
+    public int size() {
+        return wordStart.limit() - 1;
+    }
+
+    public int edgeCount() {
+        return targets.limit();
+    }
+
+    /**
+     * Returns the id of {@code word}, or -1 if it is not in the graph.
+     * Binary search compares against the arena, so no Strings are made.
+     */
+    public int id(String word) {
+        int lo = 0, hi = size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int order = compare(mid, word);
+            if (order < 0) lo = mid + 1;
+            else if (order > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Orders word {@code id} against {@code word} like String.compareTo.
+     */
+    private int compare(int id, String word) {
+        int start = wordStart.get(id);
+        int length = wordStart.get(id + 1) - start;
+        int common = Math.min(length, word.length());
+        for (int i = 0; i < common; i++) {
+            int order = letters.get(start + i) - word.charAt(i);
+            if (order != 0) return order;
+        }
+        return length - word.length();
+    }
+
+    public String word(int id) {
+        int start = wordStart.get(id);
+        char[] word = new char[wordStart.get(id + 1) - start];
+        for (int i = 0; i < word.length; i++) word[i] = letters.get(start + i);
+        return new String(word);
+    }
+
+    public int length(int id) {
+        return wordStart.get(id + 1) - wordStart.get(id);
+    }
+
+    public char letter(int id, int i) {
+        return letters.get(wordStart.get(id) + i);
+    }
+
+    public int degree(int id) {
+        return offsets.get(id + 1) - offsets.get(id);
+    }
+
+    public boolean connected(int a, int b) {
+        return component.get(a) == component.get(b);
+    }
+
+    public int component(int id) {
+        return component.get(id);
+    }
+
+    public int componentCount() {
+        return componentSizes.limit();
+    }
+
+    public int componentSize(int id) {
+        return componentSizes.get(component.get(id));
+    }
+
+    /**
+     * Counts heap arrays only; a graph mapped from an image keeps its
+     * arrays outside the Java heap.
+     */
+    public long getRetainedBytes() {
+        return heapBytes(letters, 2) + heapBytes(wordStart, 4) + heapBytes(offsets, 4)
+                + heapBytes(targets, 4) + heapBytes(component, 4) + heapBytes(componentSizes, 4);
+    }
+
+    private static long heapBytes(Buffer buffer, int width) {
+        return buffer.isDirect() ? 0 : MetricsRegistry.ARRAY_OVERHEAD + (long) width * buffer.capacity();
+    }
+}
@@ -0,0 +1,216 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.worldladder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary image of prebuilt word graphs, so the app can skip the build.
+ *
+ * The header records the number of words and a CRC32 of the words.txt the
+ * image was built from, so a stale image can be detected and ignored.
+ * After it, each graph is stored as its counts followed by the raw
+ * arrays: word offsets into a char arena, the arena padded to a multiple
+ * of four bytes, the CSR offsets and targets, and the component ids and
+ * sizes. All values are big-endian.
+ * The loader maps the file and hands WordGraph buffer views of the
+ * mapping, so nothing is copied onto the heap and no word is parsed.
+ *
+ * The image is produced from words.txt by {@link #main}:
+ *
+ *   java com.google.engedu.worldladder.WordGraphImage \
+ *       app/src/main/assets/words.txt app/src/main/assets/words.graph
+ */
+public class WordGraphImage {
+
+    private static final int MAGIC = 0x574c4731;
+    private static final int VERSION = 2;
+
+    private final List<WordGraph> graphs;
+    private final int wordCount;
+    private final long sourceChecksum;
+
+    private WordGraphImage(List<WordGraph> graphs, int wordCount, long sourceChecksum) {
+        this.graphs = graphs;
+        this.wordCount = wordCount;
+        this.sourceChecksum = sourceChecksum;
+    }
+
+    public List<WordGraph> getGraphs() {
+        return graphs;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Returns whether the image was built from exactly these bytes.
+     */
+    public boolean isBuiltFrom(InputStream words) throws IOException {
+        return checksum(words) == sourceChecksum;
+    }
+
+    /**
+     * Returns the CRC32 of the stream's bytes, and closes it.
+     */
+    public static long checksum(InputStream stream) throws IOException {
+        CRC32 crc = new CRC32();
+        InputStream in = new BufferedInputStream(stream);
+        try {
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) > 0) crc.update(chunk, 0, read);
+        } finally {
+            in.close();
+        }
+        return crc.getValue();
+    }
+
+    public static void write(List<WordGraph> graphs, long sourceChecksum, OutputStream stream)
+            throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        int wordCount = 0;
+        for (WordGraph graph : graphs) wordCount += graph.size();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(wordCount);
+        out.writeLong(sourceChecksum);
+        out.writeInt(graphs.size());
+        for (WordGraph graph : graphs) {
+            out.writeInt(graph.size());
+            out.writeInt(graph.letters.limit());
+            out.writeInt(graph.edgeCount());
+            out.writeInt(graph.componentCount());
+            writeInts(out, graph.wordStart);
+            for (int i = 0; i < graph.letters.limit(); i++) out.writeChar(graph.letters.get(i));
+            // Pad the arena so the int arrays after it stay four-byte aligned.
+            if (graph.letters.limit() % 2 != 0) out.writeChar(0);
+            writeInts(out, graph.offsets);
+            writeInts(out, graph.targets);
+            writeInts(out, graph.component);
+            writeInts(out, graph.componentSizes);
+        }
+        out.flush();
+    }
+
+    private static void writeInts(DataOutputStream out, IntBuffer values) throws IOException {
+        for (int i = 0; i < values.limit(); i++) out.writeInt(values.get(i));
+    }
+
+    /**
+     * Maps {@code length} bytes of the channel starting at {@code offset}
+     * and reads the graphs stored there. The mapping stays valid after the
+     * channel is closed.
+     */
+    public static WordGraphImage read(FileChannel channel, long offset, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        return read(buffer);
+    }
+
+    static WordGraphImage read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IOException("Not a word graph image");
+            int wordCount = buffer.getInt();
+            long sourceChecksum = buffer.getLong();
+            int count = buffer.getInt();
+            ArrayList<WordGraph> graphs = new ArrayList<>(count);
+            int words = 0;
+            for (int g = 0; g < count; g++) {
+                int n = buffer.getInt();
+                int arenaLength = buffer.getInt();
+                int edgeCount = buffer.getInt();
+                int componentCount = buffer.getInt();
+                IntBuffer wordStart = ints(buffer, n + 1);
+                CharBuffer letters = slice(buffer, 2 * arenaLength).asCharBuffer();
+                if (arenaLength % 2 != 0) buffer.getChar();
+                IntBuffer offsets = ints(buffer, n + 1);
+                IntBuffer targets = ints(buffer, edgeCount);
+                IntBuffer component = ints(buffer, n);
+                IntBuffer componentSizes = ints(buffer, componentCount);
+                graphs.add(new WordGraph(letters, wordStart, offsets, targets, component, componentSizes));
+                words += n;
+            }
+            if (words != wordCount) throw new IOException("Word graph image is truncated");
+            return new WordGraphImage(Collections.unmodifiableList(graphs), wordCount, sourceChecksum);
+        } catch (RuntimeException e) {
+            // BufferUnderflowException or a bad count from a damaged file.
+            throw new IOException("Corrupt word graph image", e);
+        }
+    }
+
+    private static IntBuffer ints(ByteBuffer buffer, int count) {
+        return slice(buffer, 4 * count).asIntBuffer();
+    }
+
+    /**
+     * Returns a view of the next {@code bytes} bytes and skips past them.
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int bytes) {
+        ByteBuffer view = buffer.slice();
+        view.limit(bytes);
+        buffer.position(buffer.position() + bytes);
+        return view;
+    }
+
+    /**
+     * Usage: WordGraphImage words.txt out.graph
+     *
+     * Writes one substitution graph per word length, in the layout
+     * PathDictionary expects.
+     */
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        ArrayList<ArrayList<String>> byLength = new ArrayList<>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(args[0])));
+        String line;
+        while ((line = in.readLine()) != null) {
+            String word = line.trim();
+            if (word.length() == 0) continue;
+            while (byLength.size() <= word.length()) byLength.add(new ArrayList<String>());
+            byLength.get(word.length()).add(word);
+        }
+        in.close();
+        ArrayList<WordGraph> graphs = new ArrayList<>();
+        for (ArrayList<String> words : byLength) {
+            if (!words.isEmpty()) graphs.add(WordGraph.build(words));
+        }
+        OutputStream out = new FileOutputStream(args[1]);
+        write(graphs, checksum(new FileInputStream(args[0])), out);
+        out.close();
+        System.out.println("Wrote " + graphs.size() + " graphs in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
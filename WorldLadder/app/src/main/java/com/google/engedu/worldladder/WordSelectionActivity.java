@@ -16,8 +16,10 @@
 package com.google.engedu.worldladder;
 
 import android.content.Intent;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import android.os.Bundle;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.Toolbar;
 import android.util.Log;
@@ -27,13 +29,23 @@ import android.view.View;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.google.engedu.metrics.MetricsRegistry;
+
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class WordSelectionActivity extends AppCompatActivity {
 
+    // Loading runs off the UI thread; both are set on it once done.
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private PathDictionary dictionary;
+    private LadderPuzzleCatalog catalog;
+    private boolean loaded;
+    private Random random = new Random();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -41,26 +53,119 @@ public class WordSelectionActivity extends AppCompatActivity {
         setContentView(R.layout.activity_word_selection);
         Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
-        AssetManager assetManager = getAssets();
+        final AssetManager assetManager = getAssets();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load(assetManager);
+            }
+        });
+    }
+
+    /**
+     * Reads the dictionary, graph image and puzzle catalog on the executor
+     * and hands them to the UI thread.
+     */
+    private void load(AssetManager assetManager) {
+        PathDictionary loadedDictionary = null;
+        try {
+            WordGraphImage image = loadGraphImage(assetManager);
+            if (image != null && image.isBuiltFrom(assetManager.open("words.txt"))) {
+                loadedDictionary = new PathDictionary(image.getGraphs());
+            } else {
+                if (image != null) Log.i("Word ladder", "Graph image is stale, building from words.txt");
+                loadedDictionary = new PathDictionary(assetManager.open("words.txt"));
+            }
+        } catch (IOException e) {
+            Log.w("Word ladder", "Could not load dictionary", e);
+        }
+        LadderPuzzleCatalog loadedCatalog = null;
+        try {
+            // Built offline by LadderPuzzleGenerator; the buttons just report if it is missing.
+            loadedCatalog = LadderPuzzleCatalog.read(assetManager.open("ladders.bin"));
+        } catch (IOException e) {
+            Log.i("Word ladder", "No puzzle catalog: " + e.getMessage());
+        }
+        final PathDictionary finalDictionary = loadedDictionary;
+        final LadderPuzzleCatalog finalCatalog = loadedCatalog;
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                if (isDestroyed()) return;
+                loaded = true;
+                dictionary = finalDictionary;
+                catalog = finalCatalog;
+                if (dictionary == null) {
+                    Toast toast = Toast.makeText(WordSelectionActivity.this,
+                            "Could not load dictionary", Toast.LENGTH_LONG);
+                    toast.show();
+                } else {
+                    MetricsRegistry.register(dictionary);
+                }
+            }
+        });
+    }
+
+    /**
+     * Maps the prebuilt graphs from the uncompressed words.graph asset, or
+     * returns null so that the dictionary builds them from the word list.
+     */
+    private WordGraphImage loadGraphImage(AssetManager assetManager) {
         try {
-            InputStream inputStream = assetManager.open("words.txt");
-            dictionary = new PathDictionary(inputStream);
+            AssetFileDescriptor descriptor = assetManager.openFd("words.graph");
+            FileInputStream stream = descriptor.createInputStream();
+            try {
+                return WordGraphImage.read(stream.getChannel(),
+                        descriptor.getStartOffset(), descriptor.getLength());
+            } finally {
+                stream.close();
+            }
         } catch (IOException e) {
-            Toast toast = Toast.makeText(this, "Could not load dictionary", Toast.LENGTH_LONG);
+            Log.i("Word ladder", "No graph image, building from words.txt: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public boolean onEasyPuzzle(View view) {
+        return startPuzzle(view, 2, 4);
+    }
+
+    public boolean onMediumPuzzle(View view) {
+        return startPuzzle(view, 5, 7);
+    }
+
+    public boolean onHardPuzzle(View view) {
+        return startPuzzle(view, 8, catalog == null ? 8 : catalog.getMaxSteps());
+    }
+
+    private boolean startPuzzle(View view, int minSteps, int maxSteps) {
+        if (!isReady()) return false;
+        int puzzle = catalog == null ? -1 : catalog.draw(minSteps, maxSteps, random);
+        if (puzzle < 0) {
+            Toast toast = Toast.makeText(this, "No puzzles available", Toast.LENGTH_SHORT);
             toast.show();
+            return false;
         }
+        ((TextView) findViewById(R.id.startWord)).setText(catalog.getStart(puzzle));
+        ((TextView) findViewById(R.id.endWord)).setText(catalog.getEnd(puzzle));
+        return onStart(view);
     }
 
     public boolean onStart(View view) {
+        if (!isReady()) return false;
         TextView startWordView = (TextView) findViewById(R.id.startWord);
         TextView endWordView = (TextView) findViewById(R.id.endWord);
-        ArrayList<String> words = dictionary.findPath(
+        LadderDag ladders = dictionary.findAllPaths(
                 startWordView.getText().toString().toLowerCase(),
                 endWordView.getText().toString().toLowerCase());
-        if (words != null) {
-            Log.d("DEBUG123", "WORDS_FOUND: " + words.size());
+        if (ladders != null) {
+            ArrayList<String> words = ladders.iterator().next();
+            Log.i("Word ladder", ladders.getPathCount() + " shortest ladders of " + ladders.getLength() + " steps");
             Intent intent = new Intent(this, SolverActivity.class);
             intent.putStringArrayListExtra("words", words);
+            // Every word that fits each step of some shortest ladder.
+            for (int i = 1; i < words.size() - 1; i++)
+                intent.putStringArrayListExtra("layer" + i, ladders.getLayerWords(i));
             startActivity(intent);
         } else {
             Log.i("Word ladder", "Word combination is not possible");
@@ -71,6 +176,22 @@ public class WordSelectionActivity extends AppCompatActivity {
         return true;
     }
 
+    private boolean isReady() {
+        if (dictionary != null) return true;
+        Toast toast = Toast.makeText(this, loaded ? "Could not load dictionary"
+                : "The dictionary is still loading", Toast.LENGTH_SHORT);
+        toast.show();
+        return false;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        executor.shutdown();
+        // The registry is static; let this activity's dictionary go with it.
+        if (dictionary != null) MetricsRegistry.unregister(dictionary);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
@@ -89,6 +210,16 @@ public class WordSelectionActivity extends AppCompatActivity {
         if (id == R.id.action_settings) {
             return true;
         }
+        if (id == R.id.action_metrics) {
+            String report = MetricsRegistry.report();
+            Log.i("Word ladder", report);
+            new AlertDialog.Builder(this)
+                    .setTitle(R.string.action_metrics)
+                    .setMessage(report)
+                    .setPositiveButton(android.R.string.ok, null)
+                    .show();
+            return true;
+        }
 
         return super.onOptionsItemSelected(item);
     }
@@ -0,0 +1,165 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.worldladder;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the graph searches against a plain BFS over strings on a small
+ * dictionary with several components.
+ */
+public class LadderSearchTest {
+
+    static final String[] WORDS = {
+            "cat", "cot", "cog", "dog", "dot", "dig", "cut", "hut", "hat", "zoo", "zoa",
+            "cold", "cord", "card", "ward", "warm", "bold", "bolt", "boat", "brat", "bran",
+            "coat", "cost", "cast", "quiz", "at", "a", "cats", "coats", "boats", "hats",
+    };
+
+    static PathDictionary dictionary() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (String word : WORDS) text.append(word).append('\n');
+        return new PathDictionary(new ByteArrayInputStream(text.toString().getBytes()));
+    }
+
+    static boolean substitution(String a, String b) {
+        if (a.length() != b.length()) return false;
+        int differing = 0;
+        for (int i = 0; i < a.length(); i++) {
+            if (a.charAt(i) != b.charAt(i)) differing++;
+        }
+        return differing == 1;
+    }
+
+    /**
+     * Returns the number of steps between the two words, or -1 if none.
+     */
+    static int bruteForceDistance(String start, String end) {
+        return bruteForceDistance(start, end, false);
+    }
+
+    /**
+     * Same as above, but with {@code edits} a step may also insert or delete
+     * one letter.
+     */
+    static int bruteForceDistance(String start, String end, boolean edits) {
+        HashMap<String, Integer> distance = new HashMap<>();
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        distance.put(start, 0);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            String word = queue.poll();
+            if (word.equals(end)) return distance.get(word);
+            for (String next : WORDS) {
+                if (distance.containsKey(next)) continue;
+                if (substitution(word, next) || edits && (deletion(word, next) || deletion(next, word))) {
+                    distance.put(next, distance.get(word) + 1);
+                    queue.add(next);
+                }
+            }
+        }
+        return -1;
+    }
+
+    static boolean deletion(String longer, String shorter) {
+        if (longer.length() != shorter.length() + 1) return false;
+        for (int i = 0; i < longer.length(); i++) {
+            if ((longer.substring(0, i) + longer.substring(i + 1)).equals(shorter)) return true;
+        }
+        return false;
+    }
+
+    private static void checkLadder(List<String> ladder, String start, String end, int steps) {
+        assertEquals(start + " -> " + end, steps + 1, ladder.size());
+        assertEquals(start, ladder.get(0));
+        assertEquals(end, ladder.get(steps));
+        for (int i = 1; i < ladder.size(); i++)
+            assertTrue(ladder.toString(), substitution(ladder.get(i - 1), ladder.get(i)));
+    }
+
+    @Test
+    public void testInformedPathIsShortest() throws Exception {
+        PathDictionary dictionary = dictionary();
+        for (String start : WORDS) {
+            for (String end : WORDS) {
+                int steps = bruteForceDistance(start, end);
+                ArrayList<String> informed = dictionary.findInformedPath(start, end);
+                if (steps < 0) {
+                    assertNull(start + " -> " + end, informed);
+                } else {
+                    checkLadder(informed, start, end, steps);
+                    checkLadder(dictionary.findPath(start, end), start, end, steps);
+                }
+            }
+        }
+        assertEquals(Arrays.asList("cold", "cord", "card", "ward", "warm"),
+                dictionary.findInformedPath("cold", "warm"));
+    }
+
+    @Test
+    public void testComponentsRejectExactlyTheUnreachablePairs() throws Exception {
+        PathDictionary dictionary = dictionary();
+        for (String start : WORDS) {
+            int reachable = 0;
+            for (String end : WORDS) {
+                boolean connected = bruteForceDistance(start, end) >= 0;
+                if (connected) reachable++;
+                assertEquals(start + " -> " + end, connected, dictionary.isReachable(start, end));
+                if (!connected) {
+                    assertNull(dictionary.findPath(start, end));
+                    assertNull(dictionary.findAllPaths(start, end));
+                }
+            }
+            assertEquals(start, reachable, dictionary.getComponentSize(start));
+        }
+        assertEquals(0, dictionary.getComponentSize("xyz"));
+        assertFalse(dictionary.isReachable("cat", "xyz"));
+    }
+
+    @Test
+    public void testEditPathIsShortest() throws Exception {
+        PathDictionary dictionary = dictionary();
+        for (String start : WORDS) {
+            for (String end : WORDS) {
+                int steps = bruteForceDistance(start, end, true);
+                ArrayList<String> ladder = dictionary.findEditPath(start, end);
+                if (steps < 0) {
+                    assertNull(start + " -> " + end, ladder);
+                    continue;
+                }
+                assertEquals(start + " -> " + end, steps + 1, ladder.size());
+                assertEquals(start, ladder.get(0));
+                assertEquals(end, ladder.get(steps));
+                for (int i = 1; i < ladder.size(); i++) {
+                    String a = ladder.get(i - 1), b = ladder.get(i);
+                    assertTrue(ladder.toString(), substitution(a, b) || deletion(a, b) || deletion(b, a));
+                }
+            }
+        }
+        // Two deletions and a substitution, in some order.
+        assertEquals(4, dictionary.findEditPath("coats", "hat").size());
+        assertNull(dictionary.findEditPath("quiz", "cat"));
+    }
+}
@@ -0,0 +1,74 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.worldladder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LandmarkIndexTest {
+
+    private static List<String> wordsOfLength(int length) {
+        List<String> words = new ArrayList<>();
+        for (String word : LadderSearchTest.WORDS) {
+            if (word.length() == length) words.add(word);
+        }
+        return words;
+    }
+
+    @Test
+    public void testBoundsEncloseTrueDistance() {
+        for (int length = 3; length <= 4; length++) {
+            WordGraph graph = WordGraph.build(wordsOfLength(length));
+            for (int count = 1; count <= 4; count++) {
+                LandmarkIndex landmarks = new LandmarkIndex(graph, count);
+                for (int u = 0; u < graph.size(); u++) {
+                    for (int v = 0; v < graph.size(); v++) {
+                        int steps = LadderSearchTest.bruteForceDistance(graph.word(u), graph.word(v));
+                        if (steps < 0) continue;
+                        String pair = graph.word(u) + " -> " + graph.word(v) + " with " + count;
+                        assertTrue(pair, landmarks.lowerBound(u, v) <= steps);
+                        assertTrue(pair, landmarks.upperBound(u, v) >= steps);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDictionaryBoundsEncloseTrueDistance() throws Exception {
+        PathDictionary dictionary = LadderSearchTest.dictionary();
+        for (String start : LadderSearchTest.WORDS) {
+            for (String end : LadderSearchTest.WORDS) {
+                int steps = start.length() == end.length()
+                        ? LadderSearchTest.bruteForceDistance(start, end) : -1;
+                int[] bounds = dictionary.getLadderLengthBounds(start, end);
+                if (steps < 0) {
+                    assertNull(start + " -> " + end, bounds);
+                } else {
+                    assertTrue(start + " -> " + end, bounds[0] <= steps && steps <= bounds[1]);
+                }
+            }
+        }
+        // The landmarks sit in the largest component, so its pairs get a finite upper bound.
+        int[] bounds = dictionary.getLadderLengthBounds("cold", "warm");
+        assertEquals(4, bounds[0]);
+        assertTrue(bounds[1] < Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,264 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.worldladder;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class PathDictionaryTest {
+
+    private static final String[] LADDER = { "cold", "cord", "card", "ward", "warm" };
+    private static final String[] DETOUR = { "cold", "bold", "bolt", "boat", "brat", "bran" };
+
+    private static InputStream stream(String... words) {
+        StringBuilder text = new StringBuilder();
+        for (String word : words) text.append(word).append('\n');
+        return new ByteArrayInputStream(text.toString().getBytes());
+    }
+
+    /**
+     * Dictionary i holds the ladder only when i is even and the detour only
+     * when i is odd, so any leakage between instances shows up as a wrong
+     * answer.
+     */
+    private static PathDictionary build(int i) throws Exception {
+        return new PathDictionary(stream(i % 2 == 0 ? LADDER : DETOUR));
+    }
+
+    private static void check(int i, PathDictionary dictionary) {
+        if (i % 2 == 0) {
+            assertEquals(Arrays.asList(LADDER), dictionary.findPath("cold", "warm"));
+            assertNull(dictionary.findPath("cold", "bran"));
+            assertFalse(dictionary.isWord("bold"));
+        } else {
+            assertEquals(Arrays.asList(DETOUR), dictionary.findPath("cold", "bran"));
+            assertNull(dictionary.findPath("cold", "warm"));
+            assertFalse(dictionary.isWord("cord"));
+        }
+    }
+
+    @Test
+    public void testInstancesAreIndependent() throws Exception {
+        PathDictionary first = build(0);
+        PathDictionary second = build(1);
+        check(0, first);
+        check(1, second);
+        assertEquals(LADDER.length, first.getEntryCount());
+    }
+
+    @Test
+    public void testDuplicateLinesCountOnce() throws Exception {
+        PathDictionary dictionary = new PathDictionary(
+                stream("cold", "cord", "cold", " cord ", "card", "cold"));
+        assertEquals(3, dictionary.getEntryCount());
+        assertEquals(3, dictionary.getPartitionWordCount(4));
+        assertEquals(Arrays.asList("cold", "cord", "card"), dictionary.findPath("cold", "card"));
+    }
+
+    @Test
+    public void testBatchQueries() throws Exception {
+        PathDictionary dictionary = build(0);
+        List<ArrayList<String>> paths = dictionary.findPaths(
+                Arrays.asList("cold", "card"), Arrays.asList("warm", "xxxx"), 2);
+        assertEquals(Arrays.asList(LADDER), paths.get(0));
+        assertNull(paths.get(1));
+        try {
+            dictionary.findPaths(Arrays.asList("cold", "card"), Arrays.asList("warm"), 2);
+            fail("Mismatched batch accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        List<ArrayList<String>> from = dictionary.findPathsFrom("cold", Arrays.asList("warm", "cold", "xxxx"));
+        assertEquals(Arrays.asList(LADDER), from.get(0));
+        assertEquals(Arrays.asList("cold"), from.get(1));
+        assertNull(from.get(2));
+        assertEquals(1, dictionary.getLatencies().get("findPaths").getCount());
+        assertEquals(1, dictionary.getLatencies().get("findPathsFrom").getCount());
+    }
+
+    @Test
+    public void testAllShortestPaths() throws Exception {
+        PathDictionary dictionary = new PathDictionary(
+                stream("cat", "cot", "cag", "cog", "dot", "dag", "dog", "dig", "zzz"));
+        LadderDag ladders = dictionary.findAllPaths("cat", "dog");
+        assertEquals(3, ladders.getLength());
+        assertEquals(4, ladders.getPathCount());
+        assertEquals(new HashSet<>(Arrays.asList("cot", "cag")), new HashSet<>(ladders.getLayerWords(1)));
+        assertEquals(new HashSet<>(Arrays.asList("cog", "dot", "dag")), new HashSet<>(ladders.getLayerWords(2)));
+
+        HashSet<List<String>> seen = new HashSet<>();
+        for (List<String> ladder : ladders) {
+            assertEquals(4, ladder.size());
+            assertEquals("cat", ladder.get(0));
+            assertEquals("dog", ladder.get(3));
+            assertTrue(seen.add(ladder));
+        }
+        assertEquals(4, seen.size());
+
+        assertEquals(1, dictionary.findAllPaths("dog", "dog").getPathCount());
+        assertNull(dictionary.findAllPaths("cat", "zzz"));
+    }
+
+    private static void assertSameGraph(WordGraph expected, WordGraph actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.edgeCount(), actual.edgeCount());
+        assertEquals(expected.componentCount(), actual.componentCount());
+        for (int v = 0; v < expected.size(); v++) {
+            assertEquals(expected.word(v), actual.word(v));
+            assertEquals(v, actual.id(expected.word(v)));
+            assertEquals(expected.component(v), actual.component(v));
+            assertEquals(expected.componentSize(v), actual.componentSize(v));
+            for (int e = expected.offsets.get(v); e < expected.offsets.get(v + 1); e++)
+                assertEquals(expected.targets.get(e), actual.targets.get(e));
+        }
+    }
+
+    @Test
+    public void testGraphImageRoundTrip() throws Exception {
+        List<String> ladders = new ArrayList<>(Arrays.asList(LADDER));
+        ladders.addAll(Arrays.asList(DETOUR));
+        List<WordGraph> graphs = Arrays.asList(
+                WordGraph.build(Arrays.asList("cod", "cot", "dot")), WordGraph.build(ladders));
+        byte[] source = "cold\ncord\n".getBytes();
+        long checksum = WordGraphImage.checksum(new ByteArrayInputStream(source));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WordGraphImage.write(graphs, checksum, out);
+
+        File file = File.createTempFile("words", ".graph");
+        try {
+            // Some leading bytes stand in for the rest of the APK.
+            FileOutputStream stream = new FileOutputStream(file);
+            stream.write(new byte[12]);
+            stream.write(out.toByteArray());
+            stream.close();
+            FileInputStream in = new FileInputStream(file);
+            WordGraphImage image = WordGraphImage.read(in.getChannel(), 12, out.size());
+            in.close();
+
+            assertEquals(2, image.getGraphs().size());
+            assertEquals(3 + LADDER.length + DETOUR.length - 1, image.getWordCount());
+            for (int g = 0; g < graphs.size(); g++) {
+                assertSameGraph(graphs.get(g), image.getGraphs().get(g));
+                // Everything is read from the mapping, nothing is copied to the heap.
+                assertEquals(0, image.getGraphs().get(g).getRetainedBytes());
+            }
+            assertTrue(image.isBuiltFrom(new ByteArrayInputStream(source)));
+            assertFalse(image.isBuiltFrom(new ByteArrayInputStream("cold\ncord\ncard\n".getBytes())));
+
+            PathDictionary dictionary = new PathDictionary(image.getGraphs());
+            assertEquals(image.getWordCount(), dictionary.getEntryCount());
+            assertTrue(dictionary.isWord("Cold"));
+            assertFalse(dictionary.isWord("cart"));
+            assertEquals(Arrays.asList(LADDER), dictionary.findPath("cold", "warm"));
+            assertEquals(Arrays.asList(DETOUR), dictionary.findInformedPath("cold", "bran"));
+            assertEquals(Arrays.asList("cod", "cot", "dot"), dictionary.findPath("cod", "dot"));
+            // The edit graph spans lengths, so it is built from the words in the mapping.
+            assertEquals(Arrays.asList("cot", "cod", "cold"), dictionary.findEditPath("cot", "cold"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testDamagedGraphImage() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WordGraphImage.write(Arrays.asList(WordGraph.build(Arrays.asList(LADDER))), 0, out);
+        byte[] image = out.toByteArray();
+        try {
+            WordGraphImage.read(ByteBuffer.wrap(Arrays.copyOf(image, image.length - 4)));
+            fail("Truncated image accepted");
+        } catch (IOException expected) {
+        }
+        image[3] ^= 1;
+        try {
+            WordGraphImage.read(ByteBuffer.wrap(image));
+            fail("Bad magic accepted");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testConcurrentConstruction() throws Exception {
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<PathDictionary>> futures = new ArrayList<>();
+            for (int i = 0; i < 4 * threads; i++) {
+                final int index = i;
+                futures.add(executor.submit(new Callable<PathDictionary>() {
+                    @Override
+                    public PathDictionary call() throws Exception {
+                        start.await();
+                        PathDictionary dictionary = build(index);
+                        check(index, dictionary);
+                        return dictionary;
+                    }
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < futures.size(); i++) check(i, futures.get(i).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentQueries() throws Exception {
+        final PathDictionary dictionary = build(0);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int j = 0; j < 1000; j++) {
+                            check(0, dictionary);
+                            assertEquals(Arrays.asList(LADDER), dictionary.findInformedPath("cold", "warm"));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) future.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -15,6 +15,10 @@
 
 package com.google.engedu.anagrams;
 
+import com.google.engedu.metrics.DictionaryMetrics;
+import com.google.engedu.metrics.LatencyHistogram;
+import com.google.engedu.metrics.MetricsRegistry;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
@@ -23,11 +27,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
-public class AnagramDictionary {
+public class AnagramDictionary implements DictionaryMetrics {
 
     private static final int MIN_NUM_ANAGRAMS = 5;
     private static final int DEFAULT_WORD_LENGTH = 3;
@@ -38,8 +43,14 @@ public class AnagramDictionary {
     public HashMap<String, ArrayList> lettersToWord = new HashMap<>();
 
     private Random random = new Random();
+    private long buildTimeNanos;
+    private LatencyHistogram goodWordLatency = new LatencyHistogram();
+    private LatencyHistogram anagramsLatency = new LatencyHistogram();
+    private LatencyHistogram oneMoreLetterLatency = new LatencyHistogram();
+    private LatencyHistogram starterWordLatency = new LatencyHistogram();
 
     public AnagramDictionary(Reader reader) throws IOException {
+        long start = System.nanoTime();
         BufferedReader in = new BufferedReader(reader);
         String line;
         while((line = in.readLine()) != null) {
@@ -57,30 +68,44 @@ public class AnagramDictionary {
             wordSet.add(word);
             wordList.add(word);
         }
+        buildTimeNanos = System.nanoTime() - start;
     }
 
     public boolean isGoodWord(String word, String base) {
-        if(wordSet.contains(word) && !word.contains(base)) return true;
-        return false;
+        long start = System.nanoTime();
+        boolean good = wordSet.contains(word) && !word.contains(base);
+        goodWordLatency.record(System.nanoTime() - start);
+        return good;
     }
 
     public List<String> getAnagrams(String targetWord) {
+        long start = System.nanoTime();
         ArrayList<String> result = new ArrayList<String>();
         for(String s:wordList) if(sortLetters(s).equals(sortLetters(targetWord))) result.add(s);
+        anagramsLatency.record(System.nanoTime() - start);
         return result;
     }
 
     public List<String> getAnagramsWithOneMoreLetter(String word) {
+        long start = System.nanoTime();
         ArrayList<String> result = new ArrayList<String>();
         for(int i=97; i<123; i++) {
             String s = (char)i + word;
             s = sortLetters(s);
             if(lettersToWord.containsKey(s)) result.addAll(lettersToWord.get(s));
         }
+        oneMoreLetterLatency.record(System.nanoTime() - start);
         return result;
     }
 
     public String pickGoodStarterWord() {
+        long start = System.nanoTime();
+        String word = pickStarterWord();
+        starterWordLatency.record(System.nanoTime() - start);
+        return word;
+    }
+
+    private String pickStarterWord() {
         int idx = (int) (Math.random() * wordList.size());
         String word = wordList.get(idx);
         while(lettersToWord.get(sortLetters(word)).size() < MIN_NUM_ANAGRAMS) {
@@ -95,4 +120,54 @@ public class AnagramDictionary {
         Arrays.sort(temp);
         return new String(temp);
     }
+
+    @Override
+    public String getName() {
+        return "AnagramDictionary";
+    }
+
+    /**
+     * Every word String is shared by wordList, wordSet and one lettersToWord
+     * bucket; each sorted key is an extra String.
+     */
+    @Override
+    public long getRetainedBytes() {
+        // HashMap/HashSet entry plus table slot, ArrayList slot.
+        final int entryBytes = 32 + MetricsRegistry.REFERENCE;
+        long bytes = 0;
+        for (String word : wordList) {
+            bytes += MetricsRegistry.stringBytes(word) + MetricsRegistry.REFERENCE;
+            bytes += entryBytes + MetricsRegistry.REFERENCE;
+        }
+        for (String key : lettersToWord.keySet()) {
+            bytes += MetricsRegistry.stringBytes(key) + entryBytes;
+            bytes += 24 + MetricsRegistry.ARRAY_OVERHEAD;
+        }
+        return bytes;
+    }
+
+    @Override
+    public int getEntryCount() {
+        return wordList.size();
+    }
+
+    @Override
+    public int getNodeCount() {
+        return lettersToWord.size();
+    }
+
+    @Override
+    public long getBuildTimeNanos() {
+        return buildTimeNanos;
+    }
+
+    @Override
+    public Map<String, LatencyHistogram> getLatencies() {
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        latencies.put("isGoodWord", goodWordLatency);
+        latencies.put("getAnagrams", anagramsLatency);
+        latencies.put("getAnagramsWithOneMoreLetter", oneMoreLetterLatency);
+        latencies.put("pickGoodStarterWord", starterWordLatency);
+        return latencies;
+    }
 }
@@ -19,11 +19,13 @@ import android.content.Context;
 import android.content.res.AssetManager;
 import android.os.Bundle;
 import android.support.design.widget.FloatingActionButton;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.Toolbar;
 import android.text.Html;
 import android.text.InputType;
 import android.text.TextUtils;
+import android.util.Log;
 import android.view.KeyEvent;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -34,6 +36,8 @@ import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.google.engedu.metrics.MetricsRegistry;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -57,6 +61,7 @@ public class AnagramsActivity extends AppCompatActivity {
         try {
             InputStream inputStream = assetManager.open("words.txt");
             dictionary = new AnagramDictionary(new InputStreamReader(inputStream));
+            MetricsRegistry.register(dictionary);
         } catch (IOException e) {
             Toast toast = Toast.makeText(this, "Could not load dictionary", Toast.LENGTH_LONG);
             toast.show();
@@ -98,6 +103,13 @@ public class AnagramsActivity extends AppCompatActivity {
         fab.show();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // The registry is static; let this activity's dictionary go with it.
+        if (dictionary != null) MetricsRegistry.unregister(dictionary);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
@@ -116,6 +128,16 @@ public class AnagramsActivity extends AppCompatActivity {
         if (id == R.id.action_settings) {
             return true;
         }
+        if (id == R.id.action_metrics) {
+            String report = MetricsRegistry.report();
+            Log.i("Anagrams", report);
+            new AlertDialog.Builder(this)
+                    .setTitle(R.string.action_metrics)
+                    .setMessage(report)
+                    .setPositiveButton(android.R.string.ok, null)
+                    .show();
+            return true;
+        }
 
         return super.onOptionsItemSelected(item);
     }
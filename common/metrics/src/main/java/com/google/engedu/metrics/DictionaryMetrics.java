@@ -0,0 +1,32 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.metrics;
+
+import java.util.Map;
+
+/**
+ * Size and timing figures a dictionary reports about itself so that
+ * implementations can be compared on a real device.
+ * Byte counts are estimates for a 64-bit runtime with compressed references.
+ */
+public interface DictionaryMetrics {
+    String getName();
+    long getRetainedBytes();
+    int getEntryCount();
+    int getNodeCount();
+    long getBuildTimeNanos();
+    Map<String, LatencyHistogram> getLatencies();
+}
@@ -0,0 +1,67 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide list of instrumented dictionaries.
+ *
+ * An activity registers its dictionary when it builds one and unregisters
+ * it in onDestroy, so a rotated or recreated activity does not leave the
+ * old dictionary reachable from here.
+ */
+public class MetricsRegistry {
+
+    // Rough heap cost of a String: header, hash, array reference and the
+    // backing char[] header.
+    public static final int STRING_OVERHEAD = 40;
+    public static final int ARRAY_OVERHEAD = 16;
+    public static final int REFERENCE = 4;
+
+    private static final List<DictionaryMetrics> dictionaries = new ArrayList<>();
+
+    public static synchronized void register(DictionaryMetrics metrics) {
+        dictionaries.add(metrics);
+    }
+
+    public static synchronized void unregister(DictionaryMetrics metrics) {
+        dictionaries.remove(metrics);
+    }
+
+    public static synchronized List<DictionaryMetrics> getAll() {
+        return new ArrayList<>(dictionaries);
+    }
+
+    public static String report() {
+        StringBuilder out = new StringBuilder();
+        for (DictionaryMetrics metrics : getAll()) {
+            out.append(String.format("%s: %d entries, %d nodes, %d KiB, built in %d ms%n",
+                    metrics.getName(), metrics.getEntryCount(), metrics.getNodeCount(),
+                    metrics.getRetainedBytes() / 1024, metrics.getBuildTimeNanos() / 1000000));
+            for (Map.Entry<String, LatencyHistogram> op : metrics.getLatencies().entrySet()) {
+                out.append("  ").append(op.getKey()).append(' ').append(op.getValue()).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    public static long stringBytes(String s) {
+        return STRING_OVERHEAD + 2L * s.length();
+    }
+}
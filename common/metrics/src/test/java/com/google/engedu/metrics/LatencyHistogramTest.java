@@ -0,0 +1,66 @@
+/* Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.engedu.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    private static long onlySample(long nanos) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(nanos);
+        return histogram.getPercentileNanos(100);
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        // A sample in [2^(i-1), 2^i) reports 2^i as its upper bound.
+        assertEquals(0, onlySample(0));
+        assertEquals(2, onlySample(1));
+        assertEquals(4, onlySample(2));
+        assertEquals(4, onlySample(3));
+        assertEquals(8, onlySample(4));
+        assertEquals(1024, onlySample(1000));
+        assertEquals(2048, onlySample(1024));
+        assertEquals(1L << 62, onlySample((1L << 62) - 1));
+    }
+
+    @Test
+    public void testClampsOutOfRangeSamples() {
+        assertEquals(0, onlySample(-5));
+        assertEquals(0, onlySample(Long.MIN_VALUE));
+        // The top bucket has no power-of-two bound that fits in a long.
+        assertEquals(Long.MAX_VALUE, onlySample(1L << 62));
+        assertEquals(Long.MAX_VALUE, onlySample(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testCountMeanAndPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanNanos());
+        assertEquals(0, histogram.getPercentileNanos(50));
+        for (int i = 1; i <= 100; i++) histogram.record(i * 10);
+        assertEquals(100, histogram.getCount());
+        assertEquals(505, histogram.getMeanNanos());
+        // The 50th sample is 500ns, in [256, 512).
+        assertEquals(512, histogram.getPercentileNanos(50));
+        assertEquals(1024, histogram.getPercentileNanos(99));
+        assertEquals(16, histogram.getPercentileNanos(0));
+    }
+}